@@ -0,0 +1,115 @@
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+
+/**
+ * Benchmarks du traitement audio sur un signal synthétique à 44,1 kHz, d'une seconde à une heure.
+ * <p>
+ * Les benchmarks qui modifient le signal en place le reçoivent par un {@link Work}, recopié avant chaque appel ;
+ * les autres ne paient pas cette copie. Le calcul des poids des filtres, qui ne dépend pas de la durée, est
+ * mesuré à part par {@link AudioWeightsBenchmark}.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+@State(Scope.Thread)
+public class AudioBenchmark {
+
+    @Param({"1", "60", "600", "3600"})
+    public int seconds;
+
+    private double[] samples;
+    private double[] weights;
+    private double[] sincWeights;
+    private File input;
+    private File output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        samples = new double[seconds * StdAudio.SAMPLE_RATE];
+        weights = AudioScrambleController.gaussian();
+        sincWeights = AudioScrambleController.windowedSinc(255, 4000, StdAudio.SAMPLE_RATE);
+
+        // Un la à 440 Hz avec un peu de bruit, pour ne pas filtrer un signal trivial
+        Random random = new Random(42);
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = 0.5 * Math.sin(2 * Math.PI * 440 * i / StdAudio.SAMPLE_RATE) + 0.1 * (random.nextDouble() - 0.5);
+        }
+
+        input = File.createTempFile("audio-benchmark-in", ".wav");
+        output = File.createTempFile("audio-benchmark-out", ".wav");
+        StdAudio.save(input.getPath(), samples);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        input.delete();
+        output.delete();
+    }
+
+    @Benchmark
+    public double[] filtrePasseBas() {
+        return AudioScrambleController.filtrePasseBas(samples, weights);
+    }
+
+    @Benchmark
+    public double[] filtrePasseBasSinc255() {
+        return AudioScrambleController.filtrePasseBas(samples, sincWeights);
+    }
+
+    @Benchmark
+    public double[] scramblesAudio(Work work) {
+        AudioScrambleController.scramblesAudio(work.samples, StdAudio.SAMPLE_RATE);
+        return work.samples;
+    }
+
+    @Benchmark
+    public double[] decryptThreePasses() {
+        double[] filtered = AudioScrambleController.filtrePasseBas(samples, weights);
+        AudioScrambleController.scramblesAudio(filtered, StdAudio.SAMPLE_RATE);
+        return AudioScrambleController.filtrePasseBas(filtered, weights);
+    }
+
+    @Benchmark
+    public double[] decryptFused(Work work) {
+        FusedAudioKernel.of(StdAudio.SAMPLE_RATE, true).process(work.samples);
+        return work.samples;
+    }
+
+    @Benchmark
+    public double[] read() {
+        return StdAudio.read(input.getPath());
+    }
+
+    @Benchmark
+    public File save() {
+        StdAudio.save(output.getPath(), samples);
+        return output;
+    }
+
+
+    /**
+     * Copie du signal pour les benchmarks qui le modifient en place, remise à neuf avant chaque appel.
+     */
+    @State(Scope.Thread)
+    public static class Work {
+        private double[] samples;
+
+        @Setup(Level.Invocation)
+        public void reset(AudioBenchmark benchmark) {
+            if (samples == null) {
+                samples = new double[benchmark.samples.length];
+            }
+            System.arraycopy(benchmark.samples, 0, samples, 0, samples.length);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+import org.openjdk.jmh.annotations.Benchmark;
+
+
+/**
+ * Benchmarks du calcul des poids des filtres passe-bas de l'audio, indépendant de la durée du signal.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class AudioWeightsBenchmark {
+
+    @Benchmark
+    public double[] gaussian() {
+        return AudioScrambleController.gaussian();
+    }
+
+    @Benchmark
+    public double[] windowedSinc255() {
+        return AudioScrambleController.windowedSinc(255, 4000, StdAudio.SAMPLE_RATE);
+    }
+}
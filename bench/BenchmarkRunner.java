@@ -0,0 +1,39 @@
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Lance les benchmarks JMH. Les résultats sont donnés en opérations par seconde, et le profileur GC
+ * ajoute les octets alloués par opération ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Utilisation : {@code java BenchmarkRunner [expression régulière des benchmarks à lancer]}
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "Benchmark")
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .forks(1)
+                .jvmArgsAppend("-Xmx8g")
+                .build();
+
+        new Runner(options).run();
+    }
+}
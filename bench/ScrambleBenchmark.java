@@ -0,0 +1,159 @@
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Random;
+
+
+/**
+ * Benchmarks du brouillage des lignes d'une frame, sur des frames synthétiques de 480 à 2160 lignes
+ * (format 16/9) en niveaux de gris, BGR et BGRA.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+@State(Scope.Thread)
+public class ScrambleBenchmark {
+
+    @Param({"480", "720", "1080", "1440", "2160"})
+    public int height;
+
+    @Param({"1", "3", "4"})
+    public int channels;
+
+    private final int offset = 173;
+    private final int step = 91;
+
+    private Mat frame;
+    private Mat frameCrypted;
+    private Mat frameDecrypted;
+    private Mat previewFrame;
+    private LineScrambler scrambler;
+    private LineScrambler parallelScrambler;
+    private byte[] source;
+    private byte[] destination;
+
+    static {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int width = height * 16 / 9;
+        frame = new Mat(height, width, CvType.makeType(CvType.CV_8U, channels));
+        Core.randu(frame, new Scalar(0), new Scalar(256));
+
+        frameCrypted = new Mat();
+        frameDecrypted = new Mat();
+
+        // mat2Image ne gère que le BGR et les niveaux de gris
+        previewFrame = new Mat();
+        if (channels == 4) {
+            Imgproc.cvtColor(frame, previewFrame, Imgproc.COLOR_BGRA2BGR);
+        } else {
+            frame.copyTo(previewFrame);
+        }
+
+        scrambler = new LineScrambler(offset, step);
+        parallelScrambler = new LineScrambler(offset, step);
+        parallelScrambler.setParallel(true);
+
+        source = new byte[width * height * channels];
+        destination = new byte[source.length];
+        new Random(42).nextBytes(source);
+
+        scrambler.scramble(frame, frameCrypted, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frame.release();
+        frameCrypted.release();
+        frameDecrypted.release();
+        previewFrame.release();
+    }
+
+    @Benchmark
+    public Mat scrambleLinesEncode() {
+        scrambler.scramble(frame, frameCrypted, true);
+        return frameCrypted;
+    }
+
+    @Benchmark
+    public Mat scrambleLinesDecode() {
+        scrambler.scramble(frameCrypted, frameDecrypted, false);
+        return frameDecrypted;
+    }
+
+    @Benchmark
+    public Mat scrambleLinesParallel() {
+        parallelScrambler.scramble(frame, frameCrypted, true);
+        return frameCrypted;
+    }
+
+    /**
+     * Référence : copie ligne par ligne avec {@code Mat.row().copyTo()}, comme avant la copie groupée.
+     */
+    @Benchmark
+    public Mat rowCopyEncode() {
+        int[] positions = LinePermutation.of(offset, step, height).forward();
+
+        for (int idLine = 0; idLine < positions.length; idLine++) {
+            frame.row(idLine).copyTo(frameCrypted.row(positions[idLine]));
+        }
+        return frameCrypted;
+    }
+
+    /**
+     * Référence : débrouillage qui cherche la position inverse de chaque ligne dans son bloc,
+     * comme avant les tables précalculées.
+     */
+    @Benchmark
+    public int[] inversePositionScan() {
+        int[] positions = new int[height];
+        int remaining = height;
+        int start = 0;
+
+        while (remaining >= 2) {
+            int puissance = Integer.highestOneBit(remaining);
+
+            for (int idLine = start; idLine < start + puissance; idLine++) {
+                for (int i = start; i < start + puissance; i++) {
+                    if (((offset + (2 * step + 1) * i) % puissance) + start == idLine) {
+                        positions[idLine] = i;
+                        break;
+                    }
+                }
+            }
+            remaining -= puissance;
+            start += puissance;
+        }
+        return positions;
+    }
+
+    @Benchmark
+    public LinePermutation permutationTables() {
+        return LinePermutation.build(offset, step, height);
+    }
+
+    @Benchmark
+    public byte[] permutationApply() {
+        LinePermutation.of(offset, step, height).apply(source, destination, source.length / height, true);
+        return destination;
+    }
+
+    @Benchmark
+    public Image mat2Image() {
+        return VideoScrambleController.mat2Image(previewFrame);
+    }
+}
@@ -0,0 +1,142 @@
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+
+/**
+ * Vérifie que {@link AudioSampleWriter} écrit, octet pour octet, le fichier qu'écrivait
+ * {@link StdAudio#save(String, double[])} avec {@link AudioSystem#write(AudioInputStream, AudioFileFormat.Type, File)}.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class AudioSampleWriterCheck {
+
+    private static final String[] EXTENSIONS = {".wav", ".au", ".aif"};
+    private static final AudioFileFormat.Type[] TYPES = {AudioFileFormat.Type.WAVE, AudioFileFormat.Type.AU,
+            AudioFileFormat.Type.AIFF};
+    // Vide, une seule frame, et plus que le tampon de l'AudioSampleWriter
+    private static final int[] FRAMES = {0, 1, 100_003};
+    // Nombre de frames écrites par appel, pour écrire le fichier en plusieurs blocs
+    private static final int BLOCK_FRAMES = 4096;
+
+    /**
+     * Compare les fichiers écrits par bloc, à partir de {@code double} et de {@code short}, aux fichiers écrits
+     * par {@link AudioSystem}, pour chaque format et en mono comme en stéréo.
+     *
+     * @return {@link int} : nombre de vérifications en échec.
+     */
+    public static int run() {
+        int failures = 0;
+        int checks = 0;
+
+        try {
+            File directory = Files.createTempDirectory("audio-sample-writer-check").toFile();
+            try {
+                for (int type = 0; type < TYPES.length; type++) {
+                    for (int channels = 1; channels <= 2; channels++) {
+                        for (int frames : FRAMES) {
+                            double[] samples = signal(frames * channels);
+                            String name = "AudioSampleWriter " + EXTENSIONS[type] + ", " + channels + " canal(aux), "
+                                    + frames + " frames";
+                            byte[] expected = audioSystem(new File(directory, "expected" + EXTENSIONS[type]),
+                                    TYPES[type], samples, channels);
+
+                            File file = new File(directory, "actual" + EXTENSIONS[type]);
+                            writeDoubles(file, samples, channels);
+                            failures += compare(name + ", double", expected, Files.readAllBytes(file.toPath()));
+                            writeShorts(file, samples, channels);
+                            failures += compare(name + ", 16 bits", expected, Files.readAllBytes(file.toPath()));
+                            checks += 2;
+                        }
+                    }
+                }
+            } finally {
+                for (File file : directory.listFiles()) {
+                    file.delete();
+                }
+                directory.delete();
+            }
+        } catch (IOException e) {
+            System.out.println("ERR : AudioSampleWriter : " + e);
+            failures++;
+        }
+
+        System.out.println("AudioSampleWriter : " + checks + " comparaisons à AudioSystem.write, " + failures
+                + " écart(s)");
+        return failures;
+    }
+
+    /**
+     * Écriture d'origine : tout le son encodé en mémoire puis écrit par {@link AudioSystem}.
+     */
+    private static byte[] audioSystem(File file, AudioFileFormat.Type type, double[] samples, int channels)
+            throws IOException {
+        AudioFormat format = new AudioFormat(StdAudio.SAMPLE_RATE, 16, channels, true, false);
+        byte[] data = new byte[2 * samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            int temp = (short) (samples[i] * 32768);
+            if (samples[i] == 1.0) temp = Short.MAX_VALUE;   // special case since 32768 not a short
+            data[2 * i] = (byte) temp;
+            data[2 * i + 1] = (byte) (temp >> 8);   // little endian
+        }
+
+        try (AudioInputStream ais = new AudioInputStream(new ByteArrayInputStream(data), format,
+                samples.length / channels)) {
+            AudioSystem.write(ais, type, file);
+        }
+        return Files.readAllBytes(file.toPath());
+    }
+
+    private static void writeDoubles(File file, double[] samples, int channels) {
+        try (AudioSampleWriter writer = new AudioSampleWriter(file.getPath(), channels)) {
+            double[] block = new double[BLOCK_FRAMES * channels];
+            for (int done = 0; done < samples.length; done += block.length) {
+                int count = Math.min(block.length, samples.length - done);
+                System.arraycopy(samples, done, block, 0, count);
+                writer.write(block, count / channels);
+            }
+        }
+    }
+
+    private static void writeShorts(File file, double[] samples, int channels) {
+        try (AudioSampleWriter writer = new AudioSampleWriter(file.getPath(), channels)) {
+            short[] block = new short[BLOCK_FRAMES * channels];
+            for (int done = 0; done < samples.length; done += block.length) {
+                int count = Math.min(block.length, samples.length - done);
+                for (int i = 0; i < count; i++) {
+                    block[i] = AudioSampleWriter.encode(samples[done + i]);
+                }
+                writer.write(block, count / channels);
+            }
+        }
+    }
+
+    /**
+     * Signal qui passe par les cas limites de l'encodage : -1.0, +1.0 et 0.
+     */
+    private static double[] signal(int length) {
+        double[] samples = FusedAudioKernelCheck.signal(length);
+        double[] limits = {-1.0, 1.0, 0.0};
+        for (int i = 0; i < Math.min(length, limits.length); i++) {
+            samples[i] = limits[i];
+        }
+        return samples;
+    }
+
+    private static int compare(String name, byte[] expected, byte[] actual) {
+        if (Arrays.equals(expected, actual)) {
+            return 0;
+        }
+        int index = Arrays.mismatch(expected, actual);
+        System.out.println("ERR : " + name + " : fichiers différents à partir de l'octet " + index + " ("
+                + actual.length + " octets au lieu de " + expected.length + ")");
+        return 1;
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Lance les vérifications qui comparent les traitements optimisés aux traitements d'origine, sur des entrées
+ * synthétiques. Aucune vérification n'a besoin d'OpenCV, de caméra ou de fichier.
+ * <p>
+ * Utilisation : {@code java CheckRunner} ; le code de retour est 1 si une vérification échoue.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class CheckRunner {
+
+    public static void main(String[] args) {
+        int failures = LinePermutationCheck.run();
+        failures += FusedAudioKernelCheck.run();
+        failures += ParallelAudioKernelCheck.run();
+        failures += AudioSampleWriterCheck.run();
+
+        System.out.println(failures == 0 ? "Vérifications réussies" : failures + " vérification(s) en échec");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
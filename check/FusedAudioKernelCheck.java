@@ -0,0 +1,113 @@
+import java.util.Random;
+
+
+/**
+ * Vérifie que {@link FusedAudioKernel} donne, au bit près, le traitement en trois passes : filtrage par
+ * {@link AudioScrambleController#filtrePasseBas}, modulation par {@link AudioScrambleController#scramblesAudio}
+ * puis second filtrage pour le débrouillage.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class FusedAudioKernelCheck {
+
+    // Pas un multiple de la tuile : la dernière tuile est incomplète
+    private static final int LENGTH = 300_001;
+    private static final int[] BLOCK_SIZES = {FusedAudioKernel.TILE_SIZE, AudioScrambler.BLOCK_SIZE,
+            AudioScrambler.PARALLEL_BLOCK_SIZE};
+
+    /**
+     * Compare le noyau en une passe aux trois passes, en {@code double} et en 16 bits, avec le filtre gaussien
+     * (convolution directe) et des sinus cardinaux appliqués par FFT.
+     *
+     * @return {@link int} : nombre de vérifications en échec.
+     */
+    public static int run() {
+        int failures = 0;
+        double[] samples = signal(LENGTH);
+        String[] filters = {"gaussian", "sinc:101:4000", "sinc:255:4000"};
+
+        for (String description : filters) {
+            double[] weights = AudioScrambleController.lowPassFilter(description);
+
+            for (boolean decrypt : new boolean[]{false, true}) {
+                String name = "FusedAudioKernel " + description + (decrypt ? ", débrouillage" : ", brouillage");
+                double[] expected = threePasses(samples, weights, decrypt);
+
+                for (int blockSize : BLOCK_SIZES) {
+                    double[] actual = samples.clone();
+                    FusedAudioKernel kernel = FusedAudioKernel.of(weights, StdAudio.SAMPLE_RATE, decrypt);
+                    for (int done = 0; done < actual.length; done += blockSize) {
+                        kernel.process(actual, done, actual, done, Math.min(blockSize, actual.length - done));
+                    }
+                    failures += compare(name + ", blocs de " + blockSize, expected, actual);
+                }
+
+                // En 16 bits : lecture comme AudioSampleReader, écriture comme AudioSampleWriter
+                short[] pcm = new short[LENGTH];
+                double[] decoded = new double[LENGTH];
+                for (int i = 0; i < LENGTH; i++) {
+                    pcm[i] = AudioSampleWriter.encode(samples[i]);
+                    decoded[i] = pcm[i] / 32768.0;
+                }
+                double[] reference = threePasses(decoded, weights, decrypt);
+                short[] expectedPcm = new short[LENGTH];
+                for (int i = 0; i < LENGTH; i++) {
+                    expectedPcm[i] = AudioSampleWriter.encode(reference[i]);
+                }
+                FusedAudioKernel kernel = FusedAudioKernel.of(weights, StdAudio.SAMPLE_RATE, decrypt);
+                for (int done = 0; done < LENGTH; done += AudioScrambler.BLOCK_SIZE) {
+                    kernel.process(pcm, done, pcm, done, Math.min(AudioScrambler.BLOCK_SIZE, LENGTH - done));
+                }
+                failures += compare(name + ", 16 bits", expectedPcm, pcm);
+            }
+        }
+
+        System.out.println("FusedAudioKernel : " + filters.length * 2 * (BLOCK_SIZES.length + 1)
+                + " comparaisons aux trois passes, " + failures + " écart(s)");
+        return failures;
+    }
+
+    /**
+     * Traitement d'origine : trois passes sur le signal entier.
+     */
+    private static double[] threePasses(double[] samples, double[] weights, boolean decrypt) {
+        double[] result = AudioScrambleController.filtrePasseBas(samples, weights);
+        AudioScrambleController.scramblesAudio(result, StdAudio.SAMPLE_RATE);
+        return decrypt ? AudioScrambleController.filtrePasseBas(result, weights) : result;
+    }
+
+    /**
+     * Un la à 440 Hz avec un peu de bruit, pour ne pas filtrer un signal trivial.
+     */
+    static double[] signal(int length) {
+        Random random = new Random(42);
+        double[] samples = new double[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = 0.5 * Math.sin(2 * Math.PI * 440 * i / StdAudio.SAMPLE_RATE) + 0.1 * (random.nextDouble() - 0.5);
+        }
+        return samples;
+    }
+
+    private static int compare(String name, double[] expected, double[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            if (Double.doubleToLongBits(expected[i]) != Double.doubleToLongBits(actual[i])) {
+                System.out.println("ERR : " + name + " : échantillon " + i + " : " + actual[i] + " au lieu de "
+                        + expected[i]);
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int compare(String name, short[] expected, short[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                System.out.println("ERR : " + name + " : échantillon " + i + " : " + actual[i] + " au lieu de "
+                        + expected[i]);
+                return 1;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Vérifie que les tables de {@link LinePermutation} donnent le brouillage d'origine : positions calculées ligne
+ * par ligne à l'encodage, recherche de la position inverse dans le bloc au décodage, copie ligne par ligne.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class LinePermutationCheck {
+
+    private static final int[] HEIGHTS = {1, 2, 3, 5, 8, 100, 479, 480, 481, 720, 1080, 1081, 1440, 2160};
+    private static final int[][] KEYS = {{0, 0}, {173, 91}, {1, 127}, {255, 0}, {255, 127}};
+    // Une ligne BGR en 1080p : assez d'octets par frame pour que la copie parallèle soit découpée
+    private static final int ROW_BYTES = 3 * 1920;
+
+    /**
+     * Compare les tables et les copies à l'algorithme d'origine pour plusieurs hauteurs et clés.
+     *
+     * @return {@link int} : nombre de vérifications en échec.
+     */
+    public static int run() {
+        int failures = 0;
+        Random random = new Random(42);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            for (int height : HEIGHTS) {
+                byte[] frame = new byte[height * ROW_BYTES];
+                random.nextBytes(frame);
+
+                for (int[] key : KEYS) {
+                    String name = "LinePermutation " + height + " lignes, clé " + key[0] + "/" + key[1];
+                    LinePermutation permutation = LinePermutation.build(key[0], key[1], height);
+
+                    byte[] encoded = new byte[frame.length];
+                    byte[] decoded = new byte[frame.length];
+                    byte[] parallel = new byte[frame.length];
+                    permutation.apply(frame, encoded, ROW_BYTES, true);
+                    permutation.apply(encoded, decoded, ROW_BYTES, false);
+
+                    if (!Arrays.equals(encoded, scrambleLines(frame, height, key[0], key[1], true))) {
+                        System.out.println("ERR : " + name + " : brouillage différent de l'original");
+                        failures++;
+                    }
+                    if (!Arrays.equals(decoded, scrambleLines(encoded, height, key[0], key[1], false))) {
+                        System.out.println("ERR : " + name + " : débrouillage différent de l'original");
+                        failures++;
+                    }
+                    if (!Arrays.equals(decoded, frame)) {
+                        System.out.println("ERR : " + name + " : le débrouillage ne redonne pas la frame");
+                        failures++;
+                    }
+                    permutation.apply(frame, parallel, ROW_BYTES, true, pool);
+                    if (!Arrays.equals(parallel, encoded)) {
+                        System.out.println("ERR : " + name + " : brouillage parallèle différent");
+                        failures++;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.println("LinePermutation : " + HEIGHTS.length * KEYS.length + " hauteurs et clés, "
+                + failures + " écart(s)");
+        return failures;
+    }
+
+    /**
+     * Brouillage d'origine, ligne par ligne. Les lignes hors des blocs (dernière ligne d'une hauteur impaire)
+     * n'étaient pas copiées : elles gardent ici leur place, comme avec les tables.
+     */
+    private static byte[] scrambleLines(byte[] frame, int height, int offset, int step, boolean encode) {
+        byte[] output = frame.clone();
+        int remaining = height;
+        int start = 0;
+
+        while (remaining >= 2) {
+            int puissance = Integer.highestOneBit(remaining);
+
+            for (int idLine = start; idLine < start + puissance; idLine++) {
+                int newPosition = encode
+                        ? ((offset + (2 * step + 1) * idLine) % puissance) + start
+                        : inversePosition(idLine, start, puissance, offset, step);
+                System.arraycopy(frame, idLine * ROW_BYTES, output, newPosition * ROW_BYTES, ROW_BYTES);
+            }
+
+            remaining -= puissance;
+            start += puissance;
+        }
+        return output;
+    }
+
+    /**
+     * Position inverse d'origine : recherche de la ligne du bloc envoyée en {@code currentPosition}.
+     */
+    private static int inversePosition(int currentPosition, int start, int puissance, int offset, int step) {
+        for (int i = start; i < start + puissance; i++) {
+            if (((offset + (2 * step + 1) * i) % puissance) + start == currentPosition) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
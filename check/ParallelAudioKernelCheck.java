@@ -0,0 +1,85 @@
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Vérifie que {@link ParallelAudioKernel} donne, au bit près, le traitement séquentiel de
+ * {@link AudioScrambler} : {@link FusedAudioKernel} par blocs de {@link AudioScrambler#BLOCK_SIZE}, lui-même
+ * identique aux trois passes ({@link FusedAudioKernelCheck}).
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class ParallelAudioKernelCheck {
+
+    // Plusieurs blocs parallèles, dont un dernier incomplet
+    private static final int LENGTH = 2 * AudioScrambler.PARALLEL_BLOCK_SIZE + 300_001;
+    private static final int[] THREADS = {1, 3, 8};
+
+    /**
+     * Compare le traitement parallèle au traitement séquentiel, sur plusieurs nombres de threads, avec le filtre
+     * gaussien et un sinus cardinal appliqué par FFT.
+     *
+     * @return {@link int} : nombre de vérifications en échec.
+     */
+    public static int run() {
+        int failures = 0;
+        short[] samples = new short[LENGTH];
+        double[] signal = FusedAudioKernelCheck.signal(LENGTH);
+        for (int i = 0; i < LENGTH; i++) {
+            samples[i] = AudioSampleWriter.encode(signal[i]);
+        }
+        String[] filters = {"gaussian", "sinc:255:4000"};
+
+        for (String description : filters) {
+            double[] weights = AudioScrambleController.lowPassFilter(description);
+
+            for (boolean decrypt : new boolean[]{false, true}) {
+                short[] expected = samples.clone();
+                FusedAudioKernel kernel = FusedAudioKernel.of(weights, StdAudio.SAMPLE_RATE, decrypt);
+                process(kernel, expected, AudioScrambler.BLOCK_SIZE);
+
+                for (int threads : THREADS) {
+                    ForkJoinPool pool = new ForkJoinPool(threads);
+                    try {
+                        short[] actual = samples.clone();
+                        process(ParallelAudioKernel.of(weights, StdAudio.SAMPLE_RATE, decrypt, pool), actual,
+                                AudioScrambler.PARALLEL_BLOCK_SIZE);
+                        failures += compare("ParallelAudioKernel " + description
+                                + (decrypt ? ", débrouillage, " : ", brouillage, ") + threads + " thread(s)",
+                                expected, actual);
+                    } finally {
+                        pool.shutdown();
+                    }
+                }
+            }
+        }
+
+        System.out.println("ParallelAudioKernel : " + filters.length * 2 * THREADS.length
+                + " comparaisons au traitement séquentiel, " + failures + " écart(s)");
+        return failures;
+    }
+
+    /**
+     * Traite le signal par blocs successifs, comme {@link AudioScrambler}.
+     */
+    private static void process(AudioScrambler.Kernel kernel, short[] samples, int blockSize) {
+        short[] block = new short[blockSize];
+        for (int done = 0; done < samples.length; done += blockSize) {
+            int count = Math.min(blockSize, samples.length - done);
+            System.arraycopy(samples, done, block, 0, count);
+            kernel.process(block, count);
+            System.arraycopy(block, 0, samples, done, count);
+        }
+    }
+
+    private static int compare(String name, short[] expected, short[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                System.out.println("ERR : " + name + " : échantillon " + i + " : " + actual[i] + " au lieu de "
+                        + expected[i]);
+                return 1;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,65 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Boucle principale de {@link FirKernel} avec l'API Vector : chaque voie du vecteur calcule un échantillon
+ * de sortie, en effectuant exactement les opérations de {@link FirKernel#dot(double[], int)} dans le même ordre.
+ * <p>
+ * Cette classe n'est chargée que si le module {@code jdk.incubator.vector} est présent. Elle est dans la racine
+ * optionnelle {@code src-vector}, compilée à part avec {@code --add-modules jdk.incubator.vector}, pour que
+ * {@code src} se compile sans le module incubateur.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+final class FirKernelVector implements FirKernel.MainLoop {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+
+    @Override
+    public void run(FirKernel kernel, double[] x, int base, double[] out, int outOffset, int length) {
+        double[] taps = kernel.getTaps();
+        int first = kernel.getFirst();
+        int lanes = SPECIES.length();
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+
+        if (kernel.isSymmetric()) {
+            int half = taps.length / 2;
+            boolean odd = (taps.length & 1) == 1;
+
+            for (; i < upper; i += lanes) {
+                int a = base + i - first;
+                int last = a - (taps.length - 1);
+                DoubleVector sum = DoubleVector.zero(SPECIES);
+
+                for (int k = 0; k < half; k++) {
+                    DoubleVector recent = DoubleVector.fromArray(SPECIES, x, a - k);
+                    DoubleVector old = DoubleVector.fromArray(SPECIES, x, last + k);
+                    sum = sum.add(recent.add(old).mul(taps[k]));
+                }
+                if (odd) {
+                    sum = sum.add(DoubleVector.fromArray(SPECIES, x, a - half).mul(taps[half]));
+                }
+                sum.intoArray(out, outOffset + i);
+            }
+        } else {
+            for (; i < upper; i += lanes) {
+                int a = base + i - first;
+                DoubleVector sum = DoubleVector.zero(SPECIES);
+
+                for (int k = 0; k < taps.length; k++) {
+                    sum = sum.add(DoubleVector.fromArray(SPECIES, x, a - k).mul(taps[k]));
+                }
+                sum.intoArray(out, outOffset + i);
+            }
+        }
+
+        // Derniers échantillons qui ne remplissent pas un vecteur entier
+        for (; i < length; i++) {
+            out[outOffset + i] = kernel.dot(x, base + i);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * Lit un fichier audio par blocs d'échantillons, sans le charger entièrement en mémoire.
+ * <p>
+ * Le son est converti en 44 100 Hz, 16 bits, en gardant le nombre de canaux du fichier (ou un nombre de
+ * canaux imposé). Chaque échantillon est rendu tel quel sous forme d'un {@code short}, ou converti en
+ * {@code double} entre -1.0 et +1.0. Les échantillons d'un fichier multicanal sont entrelacés :
+ * {@code samples[frame * channels + canal]}. En mono, lire tous les blocs donne exactement le tableau de
+ * {@link StdAudio#read(String)}.
+ * <p>
+ * Un fichier WAVE PCM 16 bits déjà à 44 100 Hz, avec les canaux voulus, est lu directement depuis sa
+ * projection en mémoire ({@link WavFile}), sans passer par les conversions de {@link AudioSystem}.
+ * <p>
+ * Les échantillons peuvent aussi venir d'un flux WAVE, par exemple la sortie standard d'un processus FFMPEG :
+ * seul l'en-tête est analysé, pour connaître les canaux, puis les échantillons PCM bruts sont lus au fil de
+ * l'eau, sans fichier intermédiaire.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class AudioSampleReader implements Closeable {
+
+    private static final int MAX_16_BIT = 32768;
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final AudioInputStream fromAudioInputStream;
+    private final AudioInputStream toAudioInputStream;
+    private final ShortBuffer mapped;
+    private final long frameLength;
+    private final int channels;
+    private byte[] bytes = new byte[0];
+    private short[] shorts = new short[0];
+
+
+    /**
+     * Ouvre un fichier audio (WAVE, AU ou AIFF) en gardant ses canaux.
+     *
+     * @param filename {@link String} : chemin du fichier.
+     * @throws IllegalArgumentException si le fichier ne peut pas être lu ou converti.
+     */
+    public AudioSampleReader(String filename) {
+        this(filename, AudioSystem.NOT_SPECIFIED);
+    }
+
+    /**
+     * Ouvre un fichier audio (WAVE, AU ou AIFF).
+     *
+     * @param filename {@link String} : chemin du fichier.
+     * @param channels {@link int} : nombre de canaux voulu, ou {@link AudioSystem#NOT_SPECIFIED} pour garder ceux du fichier.
+     * @throws IllegalArgumentException si le fichier ne peut pas être lu ou converti.
+     */
+    public AudioSampleReader(String filename, int channels) {
+        WavFile wav = filename.toLowerCase().endsWith(".wav") ? WavFile.open(filename) : null;
+        if (wav != null && wav.getSampleRate() == StdAudio.SAMPLE_RATE
+                && (channels == AudioSystem.NOT_SPECIFIED || channels == wav.getChannels())) {
+            this.fromAudioInputStream = null;
+            this.toAudioInputStream = null;
+            this.mapped = wav.samples();
+            this.frameLength = wav.getFrameLength();
+            this.channels = wav.getChannels();
+            return;
+        }
+
+        try {
+            fromAudioInputStream = AudioSystem.getAudioInputStream(new File(filename));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not read '" + filename + "'", e);
+        } catch (UnsupportedAudioFileException e) {
+            throw new IllegalArgumentException("file of unsupported audio file format: '" + filename + "'", e);
+        }
+
+        AudioFormat fromAudioFormat = fromAudioInputStream.getFormat();
+        this.channels = channels != AudioSystem.NOT_SPECIFIED ? channels : fromAudioFormat.getChannels();
+        AudioFormat toAudioFormat = new AudioFormat((float) StdAudio.SAMPLE_RATE, 16, this.channels, true, false);
+        if (!AudioSystem.isConversionSupported(toAudioFormat, fromAudioFormat)) {
+            throw new IllegalArgumentException("system cannot convert from " + fromAudioFormat + " to " + toAudioFormat);
+        }
+        toAudioInputStream = AudioSystem.getAudioInputStream(toAudioFormat, fromAudioInputStream);
+        mapped = null;
+        frameLength = toAudioInputStream.getFrameLength();
+    }
+
+    /**
+     * Lit un flux WAVE PCM 16 bits à 44 100 Hz, par exemple produit par {@code ffmpeg -f wav -}.
+     * <p>
+     * Les tailles annoncées par l'en-tête sont ignorées : un processus qui écrit dans un tube ne les connaît pas
+     * encore. Les échantillons sont lus jusqu'à la fin du flux, qui est fermé avec l'AudioSampleReader.
+     *
+     * @param in {@link InputStream} : flux WAVE, positionné au début de l'en-tête.
+     * @throws IllegalArgumentException si le flux n'est pas un WAVE PCM 16 bits à 44 100 Hz.
+     */
+    public AudioSampleReader(InputStream in) {
+        DataInputStream data = new DataInputStream(in);
+        this.channels = readWaveHeader(data);
+        this.fromAudioInputStream = null;
+        this.toAudioInputStream = new AudioInputStream(data,
+                new AudioFormat((float) StdAudio.SAMPLE_RATE, 16, channels, true, false), AudioSystem.NOT_SPECIFIED);
+        this.mapped = null;
+        this.frameLength = AudioSystem.NOT_SPECIFIED;
+    }
+
+    /**
+     * Lit l'en-tête d'un flux WAVE jusqu'au début du bloc {@code data}, sans revenir en arrière.
+     *
+     * @return {@link int} : nombre de canaux.
+     */
+    private static int readWaveHeader(DataInputStream in) {
+        try {
+            byte[] riff = new byte[12];
+            in.readFully(riff);
+            if (!new String(riff, 0, 4, StandardCharsets.US_ASCII).equals("RIFF")
+                    || !new String(riff, 8, 4, StandardCharsets.US_ASCII).equals("WAVE")) {
+                throw new IllegalArgumentException("audio stream is not a WAVE stream");
+            }
+
+            int channels = 0;
+            byte[] chunk = new byte[8];
+            while (true) {
+                in.readFully(chunk);
+                String id = new String(chunk, 0, 4, StandardCharsets.US_ASCII);
+                long length = ByteBuffer.wrap(chunk, 4, 4).order(ByteOrder.LITTLE_ENDIAN).getInt() & 0xFFFFFFFFL;
+
+                if (id.equals("data")) {
+                    if (channels == 0) {
+                        throw new IllegalArgumentException("audio stream must be 16-bit PCM at " + StdAudio.SAMPLE_RATE + " Hz");
+                    }
+                    return channels;
+                }
+
+                // Les blocs (fmt, LIST...) sont courts : seul leur contenu est gardé, complété à un nombre pair d'octets
+                byte[] body = new byte[(int) (length + (length & 1))];
+                in.readFully(body);
+                if (id.equals("fmt ") && length >= 16) {
+                    ByteBuffer fmt = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+                    int format = fmt.getShort(0) & 0xFFFF;
+                    if (format == WAVE_FORMAT_EXTENSIBLE && length >= 26) {
+                        format = fmt.getShort(24) & 0xFFFF;
+                    }
+                    boolean pcm16 = format == WAVE_FORMAT_PCM && (fmt.getShort(14) & 0xFFFF) == 16
+                            && fmt.getInt(4) == StdAudio.SAMPLE_RATE;
+                    channels = pcm16 ? fmt.getShort(2) & 0xFFFF : 0;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not read audio stream header", e);
+        }
+    }
+
+    /**
+     * Lit le bloc suivant d'échantillons.
+     *
+     * @param samples {@link double[]} : tableau à remplir, d'au moins {@code frames * getChannels()} échantillons.
+     * @param frames  {@link int} : nombre maximal de frames (un échantillon par canal) à lire.
+     * @return {@link int} : nombre de frames lues, ou -1 à la fin du fichier.
+     */
+    public int read(double[] samples, int frames) {
+        if (shorts.length < frames * channels) {
+            shorts = new short[frames * channels];
+        }
+
+        int read = read(shorts, frames);
+        for (int i = 0; i < read * channels; i++) {
+            samples[i] = shorts[i] / ((double) MAX_16_BIT);
+        }
+        return read;
+    }
+
+    /**
+     * Lit le bloc suivant d'échantillons, sous forme d'entiers 16 bits signés.
+     *
+     * @param samples {@link short[]} : tableau à remplir, d'au moins {@code frames * getChannels()} échantillons.
+     * @param frames  {@link int} : nombre maximal de frames (un échantillon par canal) à lire.
+     * @return {@link int} : nombre de frames lues, ou -1 à la fin du fichier.
+     */
+    public int read(short[] samples, int frames) {
+        if (mapped != null) {
+            int count = Math.min(frames, mapped.remaining() / channels) * channels;
+            if (count == 0) {
+                return -1;
+            }
+            mapped.get(samples, 0, count);
+            return count / channels;
+        }
+
+        int frameBytes = 2 * channels;
+        int length = frames * frameBytes;
+        if (bytes.length < length) {
+            bytes = new byte[length];
+        }
+
+        int count = 0;
+        try {
+            int n;
+            while (count < length && (n = toAudioInputStream.read(bytes, count, length - count)) != -1) {
+                count += n;
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not read audio samples", e);
+        }
+
+        if (count < frameBytes) {
+            return -1;
+        }
+
+        // little endian, canaux entrelacés
+        int read = count / frameBytes;
+        ByteBuffer.wrap(bytes, 0, read * frameBytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer()
+                .get(samples, 0, read * channels);
+        return read;
+    }
+
+    /**
+     * Lit tout le fichier, sous forme d'entiers 16 bits signés : deux octets par échantillon au lieu des
+     * huit d'un {@code double}.
+     *
+     * @param filename {@link String} : chemin du fichier.
+     * @param channels {@link int} : nombre de canaux voulu, ou {@link AudioSystem#NOT_SPECIFIED} pour garder ceux du fichier.
+     * @return {@link short[]} : échantillons entrelacés.
+     */
+    public static short[] readAll(String filename, int channels) {
+        try (AudioSampleReader reader = new AudioSampleReader(filename, channels)) {
+            long frameLength = reader.getFrameLength();
+            int capacity = frameLength != AudioSystem.NOT_SPECIFIED && frameLength * reader.channels <= Integer.MAX_VALUE
+                    ? (int) frameLength * reader.channels : 1 << 16;
+            short[] samples = new short[capacity];
+            short[] block = new short[AudioScrambler.BLOCK_SIZE * reader.channels];
+            int length = 0;
+
+            int frames;
+            while ((frames = reader.read(block, AudioScrambler.BLOCK_SIZE)) != -1) {
+                int count = frames * reader.channels;
+                if (samples.length < length + count) {
+                    samples = Arrays.copyOf(samples, Math.max(2 * samples.length, length + count));
+                }
+                System.arraycopy(block, 0, samples, length, count);
+                length += count;
+            }
+            return length == samples.length ? samples : Arrays.copyOf(samples, length);
+        }
+    }
+
+    /**
+     * Nombre total de frames du fichier.
+     *
+     * @return {@link long} : nombre de frames, ou {@link AudioSystem#NOT_SPECIFIED} s'il est inconnu.
+     */
+    public long getFrameLength() {
+        return frameLength;
+    }
+
+    /**
+     * Nombre de canaux des échantillons lus.
+     *
+     * @return {@link int} : nombre de canaux.
+     */
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public void close() {
+        if (mapped != null) {
+            return;
+        }
+        try {
+            toAudioInputStream.close();
+            if (fromAudioInputStream != null) {
+                fromAudioInputStream.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Écrit un fichier audio (WAVE, AU ou AIFF) bloc par bloc, sans garder le son en mémoire.
+ * <p>
+ * Le format est choisi d'après l'extension du fichier, comme dans {@link StdAudio#save(String, double[])} :
+ * 44 100 Hz, 16 bits, PCM signé. Les échantillons sont encodés dans un {@link ByteBuffer} direct réutilisé et
+ * écrits avec un {@link FileChannel} ; l'en-tête est écrit avec des tailles provisoires puis corrigé à la
+ * fermeture. Le fichier produit est identique à celui de {@link StdAudio#save(String, double[])}.
+ * <p>
+ * Les échantillons peuvent aussi être écrits sans en-tête, en PCM brut ({@code s16le}), dans un flux : par
+ * exemple l'entrée standard d'un processus FFMPEG qui les encode directement dans une vidéo.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class AudioSampleWriter implements Closeable {
+
+    private static final int MAX_16_BIT = 32768;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Formats de fichier pris en charge, avec la taille de leur en-tête et l'ordre des octets des échantillons.
+     */
+    private enum Type {
+        RAW(0, ByteOrder.LITTLE_ENDIAN),
+        WAVE(44, ByteOrder.LITTLE_ENDIAN),
+        AU(24, ByteOrder.BIG_ENDIAN),
+        AIFF(54, ByteOrder.BIG_ENDIAN);
+
+        private final int headerSize;
+        private final ByteOrder order;
+
+        Type(int headerSize, ByteOrder order) {
+            this.headerSize = headerSize;
+            this.order = order;
+        }
+    }
+
+    private final String filename;
+    private final Type type;
+    private final int channels;
+    private final FileChannel file;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long frames = 0;
+
+
+    /**
+     * Crée le fichier et écrit un en-tête provisoire.
+     *
+     * @param filename {@link String} : chemin du fichier, d'extension {@code .wav}, {@code .au}, {@code .aif} ou {@code .aiff}.
+     * @param channels {@link int} : nombre de canaux entrelacés.
+     * @throws IllegalArgumentException si l'extension n'est pas prise en charge ou si le fichier ne peut pas être créé.
+     */
+    public AudioSampleWriter(String filename, int channels) {
+        this.filename = filename;
+        this.type = typeOf(filename);
+        this.channels = channels;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(type.order);
+
+        try {
+            this.file = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.channel = file;
+            writeHeader();
+            file.position(type.headerSize);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("unable to save file '" + filename + "'", e);
+        }
+    }
+
+    /**
+     * Écrit des échantillons PCM bruts (16 bits signés, little endian, canaux entrelacés), sans en-tête, dans
+     * un flux. Le flux est fermé avec l'AudioSampleWriter.
+     *
+     * @param out      {@link OutputStream} : flux de destination, par exemple l'entrée d'un processus.
+     * @param channels {@link int} : nombre de canaux entrelacés.
+     */
+    public AudioSampleWriter(OutputStream out, int channels) {
+        this.filename = "pipe";
+        this.type = Type.RAW;
+        this.channels = channels;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(type.order);
+        this.file = null;
+        this.channel = Channels.newChannel(out);
+    }
+
+    /**
+     * Choisit le format d'après l'extension du fichier.
+     */
+    private static Type typeOf(String filename) {
+        String name = filename.toLowerCase();
+
+        if (name.endsWith(".wav")) {
+            return Type.WAVE;
+        } else if (name.endsWith(".au")) {
+            return Type.AU;
+        } else if (name.endsWith(".aif") || name.endsWith(".aiff")) {
+            return Type.AIFF;
+        }
+        throw new IllegalArgumentException("file extension for saving must be .wav, .au, or .aif");
+    }
+
+    /**
+     * Encode et écrit un bloc d'échantillons.
+     *
+     * @param samples {@link double[]} : échantillons entrelacés, entre -1.0 et +1.0.
+     * @param frames  {@link int} : nombre de frames (un échantillon par canal) à écrire.
+     */
+    public void write(double[] samples, int frames) {
+        int count = frames * channels;
+
+        try {
+            for (int i = 0; i < count; i++) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                buffer.putShort(encode(samples[i]));
+            }
+            flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("unable to save file '" + filename + "'", e);
+        }
+        this.frames += frames;
+    }
+
+    /**
+     * Écrit un bloc d'échantillons déjà encodés sur 16 bits.
+     *
+     * @param samples {@link short[]} : échantillons entrelacés.
+     * @param frames  {@link int} : nombre de frames (un échantillon par canal) à écrire.
+     */
+    public void write(short[] samples, int frames) {
+        int count = frames * channels;
+        int done = 0;
+
+        try {
+            while (done < count) {
+                // Copie groupée par une vue du tampon, dans l'ordre des octets du format
+                int n = Math.min(count - done, buffer.remaining() / 2);
+                buffer.asShortBuffer().put(samples, done, n);
+                buffer.position(buffer.position() + 2 * n);
+                done += n;
+                flush();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("unable to save file '" + filename + "'", e);
+        }
+        this.frames += frames;
+    }
+
+    /**
+     * Encode un échantillon sur 16 bits, comme {@link StdAudio#save(String, double[])}.
+     *
+     * @param sample {@link double} : échantillon, entre -1.0 et +1.0.
+     * @return {@link short} : échantillon encodé.
+     */
+    public static short encode(double sample) {
+        if (sample == 1.0) return Short.MAX_VALUE;   // special case since 32768 not a short
+        return (short) (sample * MAX_16_BIT);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Écrit l'en-tête au début du fichier, avec les tailles correspondant aux frames déjà écrites,
+     * sans déplacer la position d'écriture des échantillons.
+     */
+    private void writeHeader() throws IOException {
+        long dataSize = 2 * frames * channels;
+        ByteBuffer header = ByteBuffer.allocate(type.headerSize);
+
+        switch (type) {
+            case WAVE:
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                header.put(ascii("RIFF")).putInt((int) (36 + dataSize)).put(ascii("WAVE"));
+                header.put(ascii("fmt ")).putInt(16).putShort((short) 1).putShort((short) channels)
+                        .putInt(StdAudio.SAMPLE_RATE).putInt(StdAudio.SAMPLE_RATE * 2 * channels)
+                        .putShort((short) (2 * channels)).putShort((short) 16);
+                header.put(ascii("data")).putInt((int) dataSize);
+                break;
+            case AU:
+                header.put(ascii(".snd")).putInt(type.headerSize).putInt((int) dataSize)
+                        .putInt(3).putInt(StdAudio.SAMPLE_RATE).putInt(channels);
+                break;
+            case AIFF:
+                header.put(ascii("FORM")).putInt((int) (46 + dataSize)).put(ascii("AIFF"));
+                header.put(ascii("COMM")).putInt(18).putShort((short) channels).putInt((int) frames)
+                        .putShort((short) 16);
+                putExtended(header, StdAudio.SAMPLE_RATE);
+                header.put(ascii("SSND")).putInt((int) (8 + dataSize)).putInt(0).putInt(0);
+                break;
+        }
+
+        header.flip();
+        while (header.hasRemaining()) {
+            file.write(header, header.position());
+        }
+    }
+
+    /**
+     * Écrit un entier positif au format flottant étendu 80 bits de l'IEEE 754, utilisé par l'en-tête AIFF.
+     */
+    private static void putExtended(ByteBuffer header, int value) {
+        int exponent = 31 - Integer.numberOfLeadingZeros(value);
+        header.putShort((short) (16383 + exponent));
+        header.putLong((long) value << (63 - exponent));
+    }
+
+    private static byte[] ascii(String id) {
+        return id.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Corrige les tailles de l'en-tête et ferme le fichier ou le flux.
+     */
+    @Override
+    public void close() {
+        try (WritableByteChannel closing = channel) {
+            if (file != null) {
+                writeHeader();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("unable to save file '" + filename + "'", e);
+        }
+    }
+
+    // Getters.
+    public long getFramesWritten() {
+        return frames;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+}
@@ -1,6 +1,7 @@
 import javafx.stage.FileChooser;
 
 import java.io.File;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -97,28 +98,104 @@ public class AudioScrambleController {
         return weights;
     }
 
+    /**
+     * Calcule les poids d'un filtre passe-bas à sinus cardinal fenêtré (fenêtre de Blackman), de gain 1 en
+     * continu. Plus le filtre a de poids, plus la coupure est raide.
+     *
+     * @param taps       {@link int} : nombre de poids, impair pour un filtre centré.
+     * @param cutoff     {@link double} : fréquence de coupure, en Hz.
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @return Un tableau de doubles représentant les poids du filtre.
+     * @throws IllegalArgumentException si le nombre de poids ou la fréquence de coupure sont invalides.
+     */
+    public static double[] windowedSinc(int taps, double cutoff, double sampleRate) {
+        if (taps < 1 || !(cutoff > 0) || cutoff >= sampleRate / 2) {
+            throw new IllegalArgumentException("invalid low-pass filter: " + taps + " taps, cutoff " + cutoff + " Hz");
+        }
+
+        double[] weights = new double[taps];
+        double fc = cutoff / sampleRate;
+        double center = (taps - 1) / 2.0;
+        double sum = 0;
+
+        for (int i = 0; i < taps; i++) {
+            double x = i - center;
+            double sinc = x == 0 ? 2 * fc : Math.sin(2 * Math.PI * fc * x) / (Math.PI * x);
+            double window = taps == 1 ? 1 : 0.42 - 0.5 * Math.cos(2 * Math.PI * i / (taps - 1))
+                    + 0.08 * Math.cos(4 * Math.PI * i / (taps - 1));
+            weights[i] = sinc * window;
+            sum += weights[i];
+        }
+
+        for (int i = 0; i < taps; i++) {
+            weights[i] /= sum;
+        }
+        return weights;
+    }
+
+    /**
+     * Renvoie les poids du filtre passe-bas décrit par une option de la forme {@code gaussian} ou
+     * {@code sinc:<nombre de poids>:<coupure en Hz>}.
+     *
+     * @param description {@link String} : description du filtre.
+     * @return Un tableau de doubles représentant les poids du filtre.
+     * @throws IllegalArgumentException si la description est invalide.
+     */
+    public static double[] lowPassFilter(String description) {
+        if (description.equals("gaussian")) {
+            return gaussian();
+        }
+
+        String[] parts = description.split(":");
+        if (parts.length == 3 && parts[0].equals("sinc")) {
+            try {
+                return windowedSinc(Integer.parseInt(parts[1]), Double.parseDouble(parts[2]), StdAudio.SAMPLE_RATE);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid low-pass filter: " + description, e);
+            }
+        }
+        throw new IllegalArgumentException("invalid low-pass filter: " + description);
+    }
+
     /**
      * Applique un filtre passe-bas aux échantillons audio.
+     * Les poids inférieurs à {@link FirKernel#DEFAULT_TOLERANCE} sont négligés.
      *
      * @param samples {@link double[]} : échantillons audio à filtrer.
      * @param weights {@link double[]} : poids utilisés pour le filtrage.
      * @return Un tableau de doubles représentant l'échantillon audio filtré.
      */
     public static double[] filtrePasseBas(double[] samples, double[] weights) {
-        int len_samples = samples.length;
-        int len_weights = weights.length;
-        double[] filteredSample = new double[len_samples];
-        double sum;
-
-        for (int i = 0; i < len_samples; i++) {
-            sum = 0;
-            for (int j = 0; j < len_weights && i - j >= 0; j++) {
-                sum += samples[i - j] * weights[j];
-            }
-            filteredSample[i] = sum;
+        return filtrePasseBas(samples, weights, FirKernel.DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Applique un filtre passe-bas aux échantillons audio. Au-delà de {@link SampleFilter#FFT_THRESHOLD} poids,
+     * la convolution est calculée par FFT ({@link FftConvolver}), tuile par tuile comme dans
+     * {@link FusedAudioKernel} pour en donner exactement le résultat.
+     *
+     * @param samples   {@link double[]} : échantillons audio à filtrer.
+     * @param weights   {@link double[]} : poids utilisés pour le filtrage.
+     * @param tolerance {@link double} : valeur absolue en dessous de laquelle un poids est négligé.
+     * @return Un tableau de doubles représentant l'échantillon audio filtré.
+     */
+    public static double[] filtrePasseBas(double[] samples, double[] weights, double tolerance) {
+        FirKernel kernel = FirKernel.of(weights, tolerance);
+        if (kernel.getTaps().length <= SampleFilter.FFT_THRESHOLD) {
+            return kernel.apply(samples);
         }
 
-        return filteredSample;
+        // Filtre long : convolution par FFT, sur les mêmes tuiles que le traitement en une passe
+        double[] filtered = samples.clone();
+        FftConvolver convolver = new FftConvolver(kernel);
+        double[] tile = new double[FusedAudioKernel.TILE_SIZE];
+        for (int done = 0; done < filtered.length; done += tile.length) {
+            int count = Math.min(tile.length, filtered.length - done);
+            System.arraycopy(filtered, done, tile, 0, count);
+            convolver.process(tile, count);
+            System.arraycopy(tile, 0, filtered, done, count);
+        }
+        return filtered;
     }
 
     /**
@@ -128,34 +205,66 @@ public class AudioScrambleController {
      * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
      */
     public static void scramblesAudio(double[] samples, double sampleRate) {
-        double time;
-        int len_samples = samples.length;
-
-        for (int i = 0; i < len_samples; i++) {
-            time = i / sampleRate;
-
-            // Multiplie l'element de samples a la position i par une sinusoide
-            samples[i] *= Math.sin(2 * Math.PI * FREQUENCY * time);
-        }
+        // Multiplie chaque element de samples par une sinusoide, lue dans une table precalculee
+        new CarrierOscillator(FREQUENCY, sampleRate).modulate(samples, 0, samples.length);
     }
 
     /**
      * Traite les échantillons audio en appliquant un filtrage et un brouillage ou débrouillage.
+     * Le fichier est traité par blocs ({@link AudioScrambler}) : la mémoire utilisée ne dépend pas de sa durée.
      *
      * @param filePath   {@link String} : chemin de l'audio à traiter.
      * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
      * @param treatment  {@link  String} : type de traitement ("crypted" ou "decrypted").
      */
     public static void treatmentAudio(String filePath, double sampleRate, String treatment) {
-        double[] samples = StdAudio.read(filePath);
-        double[] weights = gaussian();
+        treatmentAudio(filePath, sampleRate, treatment, null);
+    }
+
+    /**
+     * Traite les échantillons audio en appliquant un filtrage et un brouillage ou débrouillage.
+     * Avec un pool, chaque bloc est découpé en morceaux traités en parallèle ({@link ParallelAudioKernel}) ;
+     * le résultat est identique au traitement séquentiel.
+     *
+     * @param filePath   {@link String} : chemin de l'audio à traiter.
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param treatment  {@link  String} : type de traitement ("crypted" ou "decrypted").
+     * @param pool       {@link ForkJoinPool} : pool du traitement parallèle, ou {@code null} pour un traitement séquentiel.
+     */
+    public static void treatmentAudio(String filePath, double sampleRate, String treatment, ForkJoinPool pool) {
+        treatmentAudio(filePath, gaussian(), sampleRate, treatment, pool);
+    }
 
-        samples = filtrePasseBas(samples, weights);
-        scramblesAudio(samples, sampleRate);
+    /**
+     * Traite les échantillons audio avec un filtre passe-bas donné. Les filtres longs sont appliqués par FFT.
+     *
+     * @param filePath   {@link String} : chemin de l'audio à traiter.
+     * @param weights    {@link double[]} : poids du filtre passe-bas.
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param treatment  {@link  String} : type de traitement ("crypted" ou "decrypted").
+     * @param pool       {@link ForkJoinPool} : pool du traitement parallèle, ou {@code null} pour un traitement séquentiel.
+     */
+    public static void treatmentAudio(String filePath, double[] weights, double sampleRate, String treatment,
+                                      ForkJoinPool pool) {
+        AudioScrambler.treatment(filePath, "Audio_" + treatment + ".wav", weights, sampleRate,
+                treatment.equals("decrypted"), pool);
+    }
+
+    /**
+     * Traite les échantillons audio en chargeant tout le fichier en mémoire.
+     *
+     * @param filePath   {@link String} : chemin de l'audio à traiter.
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param treatment  {@link  String} : type de traitement ("crypted" ou "decrypted").
+     */
+    public static void treatmentAudioInMemory(String filePath, double sampleRate, String treatment) {
+        // Son mono en entiers 16 bits : deux octets par échantillon au lieu des huit d'un double
+        short[] samples = AudioSampleReader.readAll(filePath, 1);
 
-        if (treatment.equals("decrypted")) {
-            samples = filtrePasseBas(samples, weights);
+        // Filtrage, brouillage et second filtrage du débrouillage en une seule passe, sur place
+        FusedAudioKernel.of(sampleRate, treatment.equals("decrypted")).process(samples);
+        try (AudioSampleWriter writer = new AudioSampleWriter("Audio_" + treatment + ".wav", 1)) {
+            writer.write(samples, samples.length);
         }
-        StdAudio.save("Audio_" + treatment + ".wav", samples);
     }
 }
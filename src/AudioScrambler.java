@@ -0,0 +1,180 @@
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Brouillage et débrouillage audio par blocs de taille fixe.
+ * <p>
+ * Chaque bloc est filtré, modulé par la porteuse puis, pour le débrouillage, filtré à nouveau, en une seule
+ * passe ({@link FusedAudioKernel}). L'historique des filtres et la phase de la porteuse sont conservés
+ * d'un bloc à l'autre : le résultat est identique au traitement du fichier entier, mais la mémoire utilisée
+ * ne dépend plus de la durée du fichier.
+ * <p>
+ * Les canaux du fichier sont conservés : chaque canal d'un son stéréo ou multicanal est traité séparément,
+ * sans passer par un mixage en mono.
+ * <p>
+ * Les blocs restent en entiers 16 bits, comme dans le fichier : deux octets par échantillon au lieu de huit,
+ * les calculs en {@code double} se limitant aux tuiles de {@link FusedAudioKernel}.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class AudioScrambler {
+
+    public static final int BLOCK_SIZE = 16384;
+    public static final int PARALLEL_BLOCK_SIZE = 1 << 20;
+
+    /**
+     * Traitement d'un canal, appliqué bloc par bloc.
+     */
+    public interface Kernel {
+        void process(short[] samples, int length);
+    }
+
+    private final Kernel[] kernels;
+    private final short[][] channelSamples;
+    private final int blockSize;
+
+
+    /**
+     * Constructeur de l'AudioScrambler pour un signal mono.
+     *
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param decrypt    {@link boolean} : {@code true} pour ajouter le second filtrage du débrouillage.
+     */
+    public AudioScrambler(double sampleRate, boolean decrypt) {
+        this(AudioScrambleController.gaussian(), sampleRate, decrypt, 1, null);
+    }
+
+    /**
+     * Constructeur de l'AudioScrambler.
+     *
+     * @param weights    {@link double[]} : poids du filtre passe-bas.
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param decrypt    {@link boolean} : {@code true} pour ajouter le second filtrage du débrouillage.
+     * @param channels   {@link int} : nombre de canaux entrelacés.
+     * @param pool       {@link ForkJoinPool} : pool du traitement parallèle, ou {@code null} pour un traitement séquentiel.
+     */
+    public AudioScrambler(double[] weights, double sampleRate, boolean decrypt, int channels, ForkJoinPool pool) {
+        this.kernels = new Kernel[channels];
+        for (int channel = 0; channel < channels; channel++) {
+            kernels[channel] = pool != null
+                    ? ParallelAudioKernel.of(weights, sampleRate, decrypt, pool)
+                    : FusedAudioKernel.of(weights, sampleRate, decrypt);
+        }
+        this.blockSize = pool != null ? PARALLEL_BLOCK_SIZE : BLOCK_SIZE;
+        this.channelSamples = channels > 1 ? new short[channels][blockSize] : null;
+    }
+
+    /**
+     * Traite le bloc suivant du signal.
+     * <p>
+     * Chaque canal a son propre noyau : ses échantillons sont regroupés dans un tableau contigu pour que les
+     * boucles (éventuellement vectorielles) des filtres s'appliquent, puis remis à leur place.
+     *
+     * @param samples {@link short[]} : échantillons 16 bits entrelacés du bloc, remplacés par le résultat.
+     * @param frames  {@link int} : nombre de frames (un échantillon par canal) du bloc.
+     */
+    public void process(short[] samples, int frames) {
+        int channels = kernels.length;
+        if (channels == 1) {
+            kernels[0].process(samples, frames);
+            return;
+        }
+
+        for (int channel = 0; channel < channels; channel++) {
+            short[] buffer = channelSamples[channel];
+            if (buffer.length < frames) {
+                buffer = channelSamples[channel] = new short[frames];
+            }
+
+            for (int i = 0; i < frames; i++) {
+                buffer[i] = samples[i * channels + channel];
+            }
+            kernels[channel].process(buffer, frames);
+            for (int i = 0; i < frames; i++) {
+                samples[i * channels + channel] = buffer[i];
+            }
+        }
+    }
+
+    /**
+     * Brouille ou débrouille un fichier audio bloc par bloc et écrit le résultat dans un fichier audio.
+     *
+     * @param inputPath  {@link String} : chemin de l'audio à traiter.
+     * @param outputPath {@link String} : chemin du fichier produit ({@code .wav}, {@code .au} ou {@code .aiff}).
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param decrypt    {@link boolean} : {@code true} pour débrouiller, {@code false} pour brouiller.
+     */
+    public static void treatment(String inputPath, String outputPath, double sampleRate, boolean decrypt) {
+        treatment(inputPath, outputPath, AudioScrambleController.gaussian(), sampleRate, decrypt, null);
+    }
+
+    /**
+     * Brouille ou débrouille un fichier audio bloc par bloc et écrit le résultat, au fur et à mesure, dans un
+     * fichier audio ({@link AudioSampleWriter}) ayant les mêmes canaux que l'audio d'origine.
+     *
+     * @param inputPath  {@link String} : chemin de l'audio à traiter.
+     * @param outputPath {@link String} : chemin du fichier produit ({@code .wav}, {@code .au} ou {@code .aiff}).
+     * @param weights    {@link double[]} : poids du filtre passe-bas.
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param decrypt    {@link boolean} : {@code true} pour débrouiller, {@code false} pour brouiller.
+     * @param pool       {@link ForkJoinPool} : pool du traitement parallèle, ou {@code null} pour un traitement séquentiel.
+     */
+    public static void treatment(String inputPath, String outputPath, double[] weights, double sampleRate,
+                                 boolean decrypt, ForkJoinPool pool) {
+        try (AudioSampleReader reader = new AudioSampleReader(inputPath);
+             AudioSampleWriter writer = new AudioSampleWriter(outputPath, reader.getChannels())) {
+            AudioScrambler scrambler = new AudioScrambler(weights, sampleRate, decrypt, reader.getChannels(), pool);
+            short[] samples = new short[scrambler.blockSize * reader.getChannels()];
+
+            // Chaque bloc est écrit dès qu'il est traité
+            int frames;
+            while ((frames = reader.read(samples, scrambler.blockSize)) != -1) {
+                scrambler.process(samples, frames);
+                writer.write(samples, frames);
+            }
+        }
+    }
+
+    /**
+     * Brouille un flux audio puis débrouille le résultat, bloc par bloc, et écrit chaque version au fur et à
+     * mesure. Le débrouillage traite les échantillons brouillés déjà encodés sur 16 bits : le résultat est
+     * le même que celui du débrouillage du fichier brouillé.
+     *
+     * @param reader      {@link AudioSampleReader} : audio à traiter.
+     * @param scrambled   {@link AudioSampleWriter} : destination de l'audio brouillé, ou {@code null}.
+     * @param descrambled {@link AudioSampleWriter} : destination de l'audio débrouillé, ou {@code null} pour ne pas le calculer.
+     * @param weights     {@link double[]} : poids du filtre passe-bas.
+     * @param sampleRate  {@link double} : taux d'échantillonnage de l'audio.
+     * @param pool        {@link ForkJoinPool} : pool du traitement parallèle, ou {@code null} pour un traitement séquentiel.
+     */
+    public static void treatment(AudioSampleReader reader, AudioSampleWriter scrambled, AudioSampleWriter descrambled,
+                                 double[] weights, double sampleRate, ForkJoinPool pool) {
+        int channels = reader.getChannels();
+        AudioScrambler scrambler = new AudioScrambler(weights, sampleRate, false, channels, pool);
+        AudioScrambler descrambler = descrambled != null
+                ? new AudioScrambler(weights, sampleRate, true, channels, pool) : null;
+        short[] samples = new short[scrambler.blockSize * channels];
+
+        int frames;
+        while ((frames = reader.read(samples, scrambler.blockSize)) != -1) {
+            scrambler.process(samples, frames);
+            if (scrambled != null) {
+                scrambled.write(samples, frames);
+            }
+            if (descrambler != null) {
+                descrambler.process(samples, frames);
+                descrambled.write(samples, frames);
+            }
+        }
+    }
+
+    // Getters.
+    public int getChannels() {
+        return kernels.length;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+}
@@ -0,0 +1,414 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Traitement par lots : brouille un dossier ou une liste de vidéos avec plusieurs travaux en parallèle.
+ * <p>
+ * Chaque vidéo est traitée comme par {@link VideoScrambleHeadless} (images et son en même temps), dans son propre
+ * dossier de sortie, nommé d'après son seul chemin ({@link #directoryName(Path)}) : ses vidéos, ses sons
+ * intermédiaires et son fichier de clé ne peuvent pas écraser ceux d'une autre, même si la liste des vidéos change
+ * entre deux lancements. Chaque travail terminé est ajouté, avec son dossier, au journal {@link #JOURNAL} du dossier
+ * de sortie : relancer un lot interrompu saute les vidéos déjà traitées, et aucune vidéo n'est écrite dans le
+ * dossier d'une autre vidéo du journal. Les commandes FFMPEG de tous les travaux passent par un même
+ * {@link ProcessRunner}, qui borne leur nombre et est arrêté par {@link #close()}.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class BatchProcessor implements AutoCloseable {
+
+    public static final String JOURNAL = "batch_journal.txt";
+    public static final String KEY_FILE = "key_used.txt";
+    private static final Set<String> VIDEO_EXTENSIONS = Set.of("avi", "mkv", "mp4", "mov", "webm");
+
+    private final Path outputRoot;
+    private final int jobs;
+    private int workers;
+    private int segments = 1;
+    private int offset = -1;
+    private int step = -1;
+    private boolean parallel = false;
+    private boolean withAudio = true;
+    private double[] audioFilter = AudioScrambleController.gaussian();
+    private EnumSet<VideoOutput> outputs = EnumSet.of(VideoOutput.ORIGINAL, VideoOutput.SCRAMBLED, VideoOutput.DESCRAMBLED);
+    private final ProcessRunner processRunner;
+
+
+    /**
+     * Constructeur du BatchProcessor.
+     *
+     * @param outputRoot {@link Path} : dossier où sont créés le journal et un dossier par vidéo.
+     * @param jobs       {@link int} : nombre de vidéos traitées en même temps.
+     */
+    public BatchProcessor(Path outputRoot, int jobs) {
+        if (jobs < 1) {
+            throw new IllegalArgumentException("jobs must be positive");
+        }
+        this.outputRoot = outputRoot;
+        this.jobs = jobs;
+        this.workers = Math.max(1, Runtime.getRuntime().availableProcessors() / jobs);
+        this.processRunner = new ProcessRunner(3 * jobs, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Liste les vidéos d'un dossier (triées par nom), ou celles d'un fichier manifeste : un chemin par ligne,
+     * relatif au dossier du manifeste, les lignes vides et celles commençant par {@code #} étant ignorées.
+     *
+     * @param input {@link Path} : dossier de vidéos ou manifeste.
+     * @return {@link List} : chemins des vidéos, dans l'ordre du traitement.
+     * @throws IllegalArgumentException si le dossier ou le manifeste ne peut pas être lu.
+     */
+    public static List<Path> listInputs(Path input) {
+        try {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.list(input)) {
+                    return files.filter(Files::isRegularFile)
+                            .filter(file -> VIDEO_EXTENSIONS.contains(extension(file)))
+                            .sorted()
+                            .collect(Collectors.toList());
+                }
+            }
+
+            Path base = input.toAbsolutePath().getParent();
+            List<Path> inputs = new ArrayList<>();
+            for (String line : Files.readAllLines(input, StandardCharsets.UTF_8)) {
+                String entry = line.trim();
+                if (!entry.isEmpty() && !entry.startsWith("#")) {
+                    inputs.add(base.resolve(entry));
+                }
+            }
+            return inputs;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("ERR : lecture de " + input, e);
+        }
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Traite les vidéos qui ne figurent pas encore dans le journal, {@code jobs} à la fois. L'échec d'une
+     * vidéo est affiché sans arrêter les autres ; elle sera retentée au prochain lancement.
+     *
+     * @param inputs {@link List} : vidéos à traiter.
+     * @return {@link Report} : bilan du lot.
+     */
+    public Report run(List<Path> inputs) {
+        try {
+            Files.createDirectories(outputRoot);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("ERR : création du dossier " + outputRoot, e);
+        }
+
+        // Vidéo de chaque dossier : celles du journal, puis celles lancées
+        Map<String, String> owners = readJournal();
+        Set<String> done = new HashSet<>(owners.values());
+        Report report = new Report();
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        // Chaque travail avec sa vidéo, pour nommer celle qui échoue
+        List<Map.Entry<Path, Future<Job>>> futures = new ArrayList<>();
+        for (Path path : inputs) {
+            Path input = path.toAbsolutePath().normalize();
+            String name = directoryName(input);
+            String owner = owners.putIfAbsent(name, input.toString());
+            if (done.contains(input.toString()) || input.toString().equals(owner)) {
+                // Déjà traitée, ou présente deux fois dans la liste
+                report.skipped++;
+                continue;
+            }
+            if (owner != null) {
+                report.failed++;
+                System.err.println("ERR : " + input + " : le dossier " + name + " appartient déjà à " + owner);
+                continue;
+            }
+            Path directory = outputRoot.resolve(name);
+            futures.add(Map.entry(input, executor.submit(() -> process(input, directory))));
+        }
+
+        try {
+            for (Map.Entry<Path, Future<Job>> entry : futures) {
+                try {
+                    Job job = entry.getValue().get();
+                    report.add(job);
+                    System.out.println(job);
+                } catch (ExecutionException e) {
+                    report.failed++;
+                    System.err.println("ERR : " + entry.getKey() + " : " + describe(e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ERR : traitement par lots interrompu", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        report.elapsed = System.nanoTime() - start;
+        return report;
+    }
+
+    /**
+     * Décrit l'échec d'un travail : l'exception et, à la suite, chacune de ses causes (par exemple la sortie
+     * d'erreur de FFMPEG derrière un traitement audio en échec).
+     */
+    private static String describe(Throwable failure) {
+        StringBuilder description = new StringBuilder(String.valueOf(failure));
+        for (Throwable cause = failure.getCause(); cause != null && cause != failure; cause = cause.getCause()) {
+            description.append(" : ").append(cause);
+        }
+        return description.toString();
+    }
+
+    /**
+     * Nom du dossier de sortie d'une vidéo, qui ne dépend que d'elle : son nom de fichier, suivi du début de
+     * l'empreinte SHA-256 de son chemin absolu pour séparer les vidéos de même nom ({@code x.mp4-3fa1c09e52b4}).
+     *
+     * @param input {@link Path} : chemin absolu et normalisé de la vidéo.
+     * @return {@link String} : nom du dossier, relatif au dossier de sortie du lot.
+     */
+    public static String directoryName(Path input) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(input.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(input.getFileName().toString()).append('-');
+            for (int i = 0; i < 6; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("ERR : SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * Traite une vidéo dans son dossier de sortie, puis l'ajoute au journal.
+     */
+    private Job process(Path input, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+
+        // Clé propre à chaque vidéo, sauf si une clé est imposée
+        Random random = new Random();
+        int jobOffset = offset != -1 ? offset : random.nextInt(256);
+        int jobStep = step != -1 ? step : random.nextInt(128);
+        LineScrambler scrambler = new LineScrambler(jobOffset, jobStep);
+        scrambler.setParallel(parallel);
+        VideoProcessor.writeKey(directory.resolve(KEY_FILE).toString(),
+                "Clé utilisée : (" + jobOffset + ", " + jobStep + ")");
+
+        VideoProcessor processor = new VideoProcessor(scrambler);
+        processor.setOutputs(outputs);
+        processor.setWorkers(workers);
+        processor.setSegments(segments);
+        processor.setParallelAudio(parallel);
+        processor.setAudioFilter(audioFilter);
+        processor.setProcessRunner(processRunner);
+        processor.setOutputDirectory(directory);
+        processor.setPathVideoCaptured(directory.resolve("Video_captured.mp4").toString());
+        processor.setPathVideoCrypted(directory.resolve("Video_crypted.mp4").toString());
+        processor.setPathVideoDecrypted(directory.resolve("Video_decrypted.mp4").toString());
+
+        String path = input.toString();
+        Future<?> audio = withAudio ? processor.treatAudioAsync(path) : null;
+        long frames = processor.processVideo(path);
+        if (audio != null) {
+            processor.mergeAudio(path, audio);
+        }
+
+        Job job = new Job(input, outputRoot.relativize(directory).toString(), frames, Files.size(input),
+                System.nanoTime() - start);
+        appendJournal(job);
+        return job;
+    }
+
+    /**
+     * Lit les vidéos déjà traitées dans le journal : une ligne par vidéo, avec son chemin absolu, son nombre de
+     * frames, sa durée et son dossier de sortie, séparés par des tabulations.
+     *
+     * @return {@link Map} : chemin de la vidéo traitée, par nom de dossier.
+     */
+    private Map<String, String> readJournal() {
+        Path journal = outputRoot.resolve(JOURNAL);
+        Map<String, String> done = new HashMap<>();
+        if (!Files.exists(journal)) {
+            return done;
+        }
+
+        try {
+            for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    String[] fields = line.split("\t");
+                    String input = fields[0];
+                    // Une ligne sans dossier garde le nom qu'aurait son dossier aujourd'hui
+                    String directory = fields.length >= 4 ? fields[3] : directoryName(Paths.get(input));
+                    done.put(directory, input);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("ERR : lecture du journal " + journal, e);
+        }
+        return done;
+    }
+
+    /**
+     * Ajoute une vidéo terminée au journal. Une ligne n'est écrite qu'une fois tous ses fichiers produits.
+     */
+    private synchronized void appendJournal(Job job) throws IOException {
+        String line = job.input + "\t" + job.frames + "\t" + String.format(Locale.ROOT, "%.3f", job.elapsed / 1e9)
+                + "\t" + job.directory + System.lineSeparator();
+        Files.write(outputRoot.resolve(JOURNAL), line.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    /**
+     * Arrête le {@link ProcessRunner} partagé par les travaux ; le lot ne peut plus être lancé ensuite.
+     */
+    @Override
+    public void close() {
+        processRunner.close();
+    }
+
+    // Getters.
+    public ProcessRunner getProcessRunner() {
+        return processRunner;
+    }
+
+
+    // Setters.
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public void setSegments(int segments) {
+        this.segments = segments;
+    }
+
+    public void setKey(int offset, int step) {
+        this.offset = offset;
+        this.step = step;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public void setWithAudio(boolean withAudio) {
+        this.withAudio = withAudio;
+    }
+
+    public void setAudioFilter(double[] audioFilter) {
+        this.audioFilter = audioFilter.clone();
+    }
+
+    public void setOutputs(EnumSet<VideoOutput> outputs) {
+        this.outputs = EnumSet.copyOf(outputs);
+    }
+
+
+    /**
+     * Vidéo traitée.
+     */
+    public static final class Job {
+        private final Path input;
+        private final String directory;
+        private final long frames;
+        private final long bytes;
+        private final long elapsed;
+
+        private Job(Path input, String directory, long frames, long bytes, long elapsed) {
+            this.input = input;
+            this.directory = directory;
+            this.frames = frames;
+            this.bytes = bytes;
+            this.elapsed = elapsed;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsed / 1e9;
+            return String.format("%s : %d frames en %.2f s (%.1f images/s)", input.getFileName(), frames, seconds,
+                    frames / seconds);
+        }
+    }
+
+
+    /**
+     * Bilan d'un lot : vidéos traitées, sautées et en échec, et débit global.
+     */
+    public static final class Report {
+        private int processed = 0;
+        private int skipped = 0;
+        private int failed = 0;
+        private long frames = 0;
+        private long bytes = 0;
+        private long elapsed = 0;
+
+        private void add(Job job) {
+            processed++;
+            frames += job.frames;
+            bytes += job.bytes;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsed / 1e9;
+            return String.format("%d vidéos traitées, %d déjà faites, %d en échec : %d frames en %.2f s "
+                            + "(%.1f images/s, %.1f Mo/s en entrée)", processed, skipped, failed, frames, seconds,
+                    frames / seconds, bytes / 1e6 / seconds);
+        }
+
+        // Getters.
+        public int getProcessed() {
+            return processed;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * Durée du lot, de son lancement à la fin du dernier travail.
+         *
+         * @return {@link long} : durée en nanosecondes.
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+    }
+}
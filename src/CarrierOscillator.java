@@ -0,0 +1,182 @@
+/**
+ * Porteuse sinusoïdale {@code sin(2π · frequency · n / sampleRate)} utilisée pour moduler les échantillons audio.
+ * <p>
+ * Quand la fréquence et le taux d'échantillonnage sont entiers, la porteuse est périodique : sa période est
+ * {@code sampleRate / pgcd(frequency, sampleRate)} échantillons (441 pour 12 800 Hz à 44 100 Hz). Une période
+ * est alors calculée une seule fois et la modulation n'est plus qu'une multiplication par une valeur de la table.
+ * Sinon (ou si la période dépasse {@link #MAX_TABLE_SIZE}), la porteuse est obtenue par une récurrence de
+ * rotation, recalée sur {@link Math#sin(double)} tous les {@link #RESYNC_INTERVAL} échantillons pour que
+ * l'erreur ne s'accumule pas.
+ * <p>
+ * L'oscillateur garde l'indice absolu du prochain échantillon : un signal traité par blocs est modulé comme
+ * s'il était traité en une fois.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public final class CarrierOscillator {
+
+    public static final int MAX_TABLE_SIZE = 1 << 16;
+    public static final int RESYNC_INTERVAL = 1024;
+
+    private final double frequency;
+    private final double sampleRate;
+    private final double[] table;
+    private final double stepSin;
+    private final double stepCos;
+    private long position = 0;
+
+
+    /**
+     * Constructeur du CarrierOscillator.
+     *
+     * @param frequency  {@link double} : fréquence de la porteuse, en Hz.
+     * @param sampleRate {@link double} : taux d'échantillonnage, en Hz.
+     * @throws IllegalArgumentException si le taux d'échantillonnage n'est pas strictement positif.
+     */
+    public CarrierOscillator(double frequency, double sampleRate) {
+        if (!(sampleRate > 0)) {
+            throw new IllegalArgumentException("sample rate must be positive: " + sampleRate);
+        }
+        this.frequency = frequency;
+        this.sampleRate = sampleRate;
+        this.table = buildTable(frequency, sampleRate);
+
+        double step = 2 * Math.PI * frequency / sampleRate;
+        this.stepSin = Math.sin(step);
+        this.stepCos = Math.cos(step);
+    }
+
+    /**
+     * Calcule une période exacte de la porteuse si la fréquence et le taux d'échantillonnage sont entiers.
+     *
+     * @return {@link double[]} : la période, ou {@code null} s'il faut utiliser la récurrence.
+     */
+    private static double[] buildTable(double frequency, double sampleRate) {
+        if (frequency != Math.rint(frequency) || sampleRate != Math.rint(sampleRate)
+                || Math.abs(frequency) > Integer.MAX_VALUE || sampleRate > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        long f = (long) frequency;
+        long rate = (long) sampleRate;
+        long period = rate / gcd(Math.abs(f), rate);
+        if (period > MAX_TABLE_SIZE) {
+            return null;
+        }
+
+        double[] values = new double[(int) period];
+        for (int i = 0; i < values.length; i++) {
+            // Phase réduite exactement à [0, 1) tour, pour ne pas perdre de précision sur 2π·f·i
+            long turns = Math.floorMod(f * i, rate);
+            values[i] = Math.sin(2 * Math.PI * turns / sampleRate);
+        }
+        return values;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Valeur de la porteuse pour un échantillon donné.
+     *
+     * @param index {@link long} : indice absolu de l'échantillon.
+     * @return {@link double} : valeur entre -1.0 et +1.0.
+     */
+    public double value(long index) {
+        if (table != null) {
+            return table[(int) Math.floorMod(index, (long) table.length)];
+        }
+        return Math.sin(2 * Math.PI * frequency * (index / sampleRate));
+    }
+
+    /**
+     * Multiplie les échantillons par la porteuse, à partir de la position courante, puis avance la position.
+     *
+     * @param samples {@link double[]} : échantillons, remplacés par le résultat.
+     * @param offset  {@link int} : indice du premier échantillon à moduler.
+     * @param length  {@link int} : nombre d'échantillons à moduler.
+     */
+    public void modulate(double[] samples, int offset, int length) {
+        if (table != null) {
+            modulateFromTable(samples, offset, length);
+        } else {
+            modulateByRecurrence(samples, offset, length);
+        }
+        position += length;
+    }
+
+    private void modulateFromTable(double[] samples, int offset, int length) {
+        int index = (int) Math.floorMod(position, (long) table.length);
+        int i = 0;
+
+        while (i < length) {
+            // Parcourt la table jusqu'à la fin de la période ou du bloc, sans modulo par échantillon
+            int count = Math.min(length - i, table.length - index);
+            for (int k = 0; k < count; k++) {
+                samples[offset + i + k] *= table[index + k];
+            }
+            i += count;
+            index = 0;
+        }
+    }
+
+    private void modulateByRecurrence(double[] samples, int offset, int length) {
+        long current = position;
+        int i = 0;
+
+        while (i < length) {
+            // Recalage exact au début de chaque intervalle
+            int count = (int) Math.min(length - i, RESYNC_INTERVAL - Math.floorMod(current, (long) RESYNC_INTERVAL));
+            double phase = 2 * Math.PI * frequency * (current / sampleRate);
+            double sin = Math.sin(phase);
+            double cos = Math.cos(phase);
+
+            for (int k = 0; k < count; k++) {
+                samples[offset + i + k] *= sin;
+                double nextSin = sin * stepCos + cos * stepSin;
+                cos = cos * stepCos - sin * stepSin;
+                sin = nextSin;
+            }
+            i += count;
+            current += count;
+        }
+    }
+
+    /**
+     * Place l'oscillateur sur un échantillon donné.
+     *
+     * @param position {@link long} : indice absolu du prochain échantillon à moduler.
+     */
+    public void seek(long position) {
+        this.position = position;
+    }
+
+    // Getters.
+    public long getPosition() {
+        return position;
+    }
+
+    public double getFrequency() {
+        return frequency;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Indique si la porteuse est lue dans une table précalculée.
+     *
+     * @return {@link boolean} : {@code true} si une période exacte a été précalculée.
+     */
+    public boolean isTabulated() {
+        return table != null;
+    }
+}
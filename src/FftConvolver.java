@@ -0,0 +1,193 @@
+import java.util.Arrays;
+
+
+/**
+ * Filtre à réponse impulsionnelle finie par convolution rapide (FFT, méthode overlap-save).
+ * <p>
+ * Pour un filtre de {@code L} poids, chaque bloc de {@code M - L + 1} échantillons est placé derrière les
+ * {@code L - 1} échantillons précédents, transformé par une FFT de taille {@code M}, multiplié par le spectre
+ * du filtre puis ramené dans le domaine temporel : les {@code L - 1} premières sorties (faussées par la
+ * convolution circulaire) sont jetées, les suivantes sont exactement celles de la convolution directe, aux
+ * erreurs d'arrondi près. Le coût par échantillon passe de {@code O(L)} à {@code O(log M)}.
+ * <p>
+ * Le signal étant réel, deux segments consécutifs partagent chaque transformée complexe (l'un en partie réelle,
+ * l'autre en partie imaginaire). Un bloc plus court est complété par des zéros : le filtre n'ajoute aucune
+ * latence et s'utilise bloc par bloc comme {@link FirFilter}.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class FftConvolver implements SampleFilter {
+
+    private static final int MIN_FFT_SIZE = 256;
+
+    private final FirKernel kernel;
+    private final int size;
+    private final int history;
+    private final int step;
+
+    // Données partagées entre les copies : spectre du filtre, table de permutation et facteurs de rotation
+    private final double[] filterRe;
+    private final double[] filterIm;
+    private final int[] reversed;
+    private final double[] cos;
+    private final double[] sin;
+
+    private final double[] input;
+    private final double[] re;
+    private final double[] im;
+
+
+    /**
+     * Constructeur du FftConvolver.
+     *
+     * @param kernel {@link FirKernel} : noyau du filtre.
+     */
+    public FftConvolver(FirKernel kernel) {
+        this.kernel = kernel;
+        this.history = kernel.span();
+
+        // FFT de quatre à huit fois la longueur du filtre : au moins les trois quarts de chaque transformée sont utiles
+        this.size = Math.max(MIN_FFT_SIZE, Integer.highestOneBit(history + 1) << 3);
+        this.step = size - history;
+
+        this.reversed = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            reversed[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = Math.cos(2 * Math.PI * i / size);
+            sin[i] = Math.sin(2 * Math.PI * i / size);
+        }
+
+        // Réponse impulsionnelle complète, poids retirés en tête compris (décalage de getFirst())
+        this.filterRe = new double[size];
+        this.filterIm = new double[size];
+        double[] taps = kernel.getTaps();
+        System.arraycopy(taps, 0, filterRe, kernel.getFirst(), taps.length);
+        transform(filterRe, filterIm, false);
+
+        this.input = new double[size + step];
+        this.re = new double[size];
+        this.im = new double[size];
+    }
+
+    /**
+     * Constructeur de copie : partage les données immuables, avec un historique vide.
+     */
+    private FftConvolver(FftConvolver other) {
+        this.kernel = other.kernel;
+        this.size = other.size;
+        this.history = other.history;
+        this.step = other.step;
+        this.filterRe = other.filterRe;
+        this.filterIm = other.filterIm;
+        this.reversed = other.reversed;
+        this.cos = other.cos;
+        this.sin = other.sin;
+        this.input = new double[size + step];
+        this.re = new double[size];
+        this.im = new double[size];
+    }
+
+    @Override
+    public void process(double[] samples, int length) {
+        int done = 0;
+
+        while (done < length) {
+            // Deux segments consécutifs par transformée : le premier en partie réelle, le second en partie
+            // imaginaire. Le filtre étant réel, les deux convolutions se retrouvent séparées dans le résultat.
+            int count = Math.min(2 * step, length - done);
+            int first = Math.min(step, count);
+            int second = count - first;
+
+            // input = [historique | segments | zéros]
+            System.arraycopy(samples, done, input, history, count);
+            Arrays.fill(input, history + count, input.length, 0.0);
+            System.arraycopy(input, 0, re, 0, size);
+            System.arraycopy(input, step, im, 0, size);
+
+            transform(re, im, false);
+            for (int i = 0; i < size; i++) {
+                double real = re[i] * filterRe[i] - im[i] * filterIm[i];
+                im[i] = re[i] * filterIm[i] + im[i] * filterRe[i];
+                re[i] = real;
+            }
+            transform(re, im, true);
+
+            for (int i = 0; i < first; i++) {
+                samples[done + i] = re[history + i] / size;
+            }
+            for (int i = 0; i < second; i++) {
+                samples[done + first + i] = im[history + i] / size;
+            }
+
+            // Garde la fin des segments comme historique de la transformée suivante
+            System.arraycopy(input, count, input, 0, history);
+            done += count;
+        }
+    }
+
+    /**
+     * FFT radix 2 itérative, sur place.
+     *
+     * @param re      {@link double[]} : parties réelles.
+     * @param im      {@link double[]} : parties imaginaires.
+     * @param inverse {@link boolean} : {@code true} pour la transformée inverse (non normalisée).
+     */
+    private void transform(double[] re, double[] im, boolean inverse) {
+        for (int i = 0; i < size; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+
+        double sign = inverse ? 1 : -1;
+        for (int half = 1; half < size; half <<= 1) {
+            int stride = size / (2 * half);
+            for (int start = 0; start < size; start += 2 * half) {
+                for (int k = 0; k < half; k++) {
+                    double wr = cos[k * stride];
+                    double wi = sign * sin[k * stride];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(input, 0.0);
+    }
+
+    @Override
+    public int span() {
+        return history;
+    }
+
+    @Override
+    public FftConvolver copy() {
+        return new FftConvolver(this);
+    }
+
+    // Getters.
+    public int getSize() {
+        return size;
+    }
+}
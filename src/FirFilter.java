@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+
+/**
+ * Filtre à réponse impulsionnelle finie appliqué bloc par bloc.
+ * <p>
+ * Le filtre garde les {@link FirKernel#span()} derniers échantillons du bloc précédent : filtrer un signal
+ * en plusieurs blocs donne exactement le même résultat que {@link FirKernel#apply(double[])} sur le signal
+ * entier, les échantillons d'avant le début valant 0.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class FirFilter implements SampleFilter {
+
+    private final FirKernel kernel;
+    private final int history;
+    private double[] work;
+
+
+    /**
+     * Constructeur du FirFilter.
+     *
+     * @param weights {@link double[]} : poids du filtre, {@code weights[j]} s'appliquant à l'échantillon {@code i - j}.
+     */
+    public FirFilter(double[] weights) {
+        this(FirKernel.of(weights, FirKernel.DEFAULT_TOLERANCE));
+    }
+
+    /**
+     * Constructeur du FirFilter.
+     *
+     * @param kernel {@link FirKernel} : noyau du filtre.
+     */
+    public FirFilter(FirKernel kernel) {
+        this.kernel = kernel;
+        this.history = kernel.span();
+        this.work = new double[history];
+    }
+
+    /**
+     * Filtre un bloc d'échantillons à la suite des blocs déjà filtrés.
+     *
+     * @param samples {@link double[]} : échantillons à filtrer, remplacés par le résultat.
+     * @param length  {@link int} : nombre d'échantillons du bloc.
+     */
+    @Override
+    public void process(double[] samples, int length) {
+        if (work.length < history + length) {
+            double[] larger = new double[history + length];
+            System.arraycopy(work, 0, larger, 0, history);
+            work = larger;
+        }
+
+        // work = [historique | bloc] : l'échantillon i du bloc est en history + i
+        System.arraycopy(samples, 0, work, history, length);
+        kernel.apply(work, history, samples, 0, length);
+
+        // Garde la fin du bloc comme historique du bloc suivant
+        System.arraycopy(work, length, work, 0, history);
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(work, 0, history, 0.0);
+    }
+
+    @Override
+    public int span() {
+        return history;
+    }
+
+    @Override
+    public FirFilter copy() {
+        return new FirFilter(kernel);
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Noyau de convolution optimisé pour les filtres à réponse impulsionnelle finie.
+ * <p>
+ * Les poids négligeables (inférieurs en valeur absolue à une tolérance) sont retirés au début et à la fin
+ * du filtre : avec le filtre gaussien de {@link AudioScrambleController#gaussian()}, seuls 13 des 44 poids
+ * sont conservés. Quand les poids restants sont symétriques, les échantillons qui partagent un même poids
+ * sont additionnés avant la multiplication, ce qui divise le nombre de multiplications par deux.
+ * <p>
+ * Les premiers échantillons, pour lesquels le filtre déborderait avant le début du signal, sont traités à
+ * part ; la boucle principale n'a ainsi aucun test de bornes. Elle utilise l'API Vector (incubateur) quand
+ * le module {@code jdk.incubator.vector} est chargé ({@code --add-modules jdk.incubator.vector}) et que la
+ * racine optionnelle {@code src-vector} ({@link FirKernel.MainLoop} vectorielle) a été compilée, sinon une
+ * boucle scalaire. Les deux boucles effectuent les mêmes opérations dans le même ordre pour chaque
+ * échantillon et donnent donc exactement le même résultat.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public final class FirKernel {
+
+    public static final double DEFAULT_TOLERANCE = 1e-10;
+
+    private static final MainLoop SCALAR_LOOP = FirKernel::scalarLoop;
+    private static final MainLoop MAIN_LOOP = loadMainLoop();
+
+    private final double[] taps;
+    private final int first;
+    private final boolean symmetric;
+
+
+    /**
+     * Boucle principale : {@code out[outOffset + i]} reçoit la sortie du filtre pour l'échantillon
+     * {@code x[base + i]}, les {@link #span()} échantillons précédents devant exister dans {@code x}.
+     */
+    interface MainLoop {
+        void run(FirKernel kernel, double[] x, int base, double[] out, int outOffset, int length);
+    }
+
+    /**
+     * Constructeur du FirKernel.
+     *
+     * @param taps  {@link double[]} : poids conservés.
+     * @param first {@link int} : indice dans le filtre d'origine du premier poids conservé.
+     */
+    private FirKernel(double[] taps, int first) {
+        this.taps = taps;
+        this.first = first;
+
+        boolean isSymmetric = true;
+        for (int k = 0; k < taps.length / 2; k++) {
+            if (taps[k] != taps[taps.length - 1 - k]) {
+                isSymmetric = false;
+                break;
+            }
+        }
+        this.symmetric = isSymmetric;
+    }
+
+    /**
+     * Construit le noyau d'un filtre en retirant les poids négligeables de ses extrémités.
+     *
+     * @param weights   {@link double[]} : poids du filtre, {@code weights[j]} s'appliquant à l'échantillon {@code i - j}.
+     * @param tolerance {@link double} : valeur absolue en dessous de laquelle un poids est négligé.
+     * @return le {@link FirKernel} correspondant.
+     */
+    public static FirKernel of(double[] weights, double tolerance) {
+        int start = 0;
+        int end = weights.length;
+
+        while (start < end && Math.abs(weights[start]) < tolerance) {
+            start++;
+        }
+        while (end > start && Math.abs(weights[end - 1]) < tolerance) {
+            end--;
+        }
+        if (start == end) {
+            // Filtre entièrement négligeable : on garde un poids nul pour que la sortie vaille 0
+            return new FirKernel(new double[]{0.0}, 0);
+        }
+
+        double[] taps = new double[end - start];
+        System.arraycopy(weights, start, taps, 0, taps.length);
+        return new FirKernel(taps, start);
+    }
+
+    /**
+     * Filtre un signal entier.
+     *
+     * @param samples {@link double[]} : échantillons à filtrer.
+     * @return {@link double[]} : échantillons filtrés.
+     */
+    public double[] apply(double[] samples) {
+        double[] filtered = new double[samples.length];
+        int edge = Math.min(span(), samples.length);
+
+        for (int i = 0; i < edge; i++) {
+            filtered[i] = dotEdge(samples, i);
+        }
+        if (samples.length > edge) {
+            MAIN_LOOP.run(this, samples, edge, filtered, edge, samples.length - edge);
+        }
+        return filtered;
+    }
+
+    /**
+     * Filtre {@code length} échantillons de {@code x} à partir de {@code base}, précédés d'au moins
+     * {@link #span()} échantillons d'historique.
+     *
+     * @param x         {@link double[]} : historique puis échantillons à filtrer.
+     * @param base      {@link int} : indice du premier échantillon à filtrer, au moins égal à {@link #span()}.
+     * @param out       {@link double[]} : tableau de sortie.
+     * @param outOffset {@link int} : indice de la première sortie.
+     * @param length    {@link int} : nombre d'échantillons à filtrer.
+     */
+    public void apply(double[] x, int base, double[] out, int outOffset, int length) {
+        MAIN_LOOP.run(this, x, base, out, outOffset, length);
+    }
+
+    /**
+     * Sortie du filtre pour l'échantillon {@code x[position]}, sans test de bornes.
+     *
+     * @param x        {@link double[]} : signal.
+     * @param position {@link int} : indice de l'échantillon, au moins égal à {@link #span()}.
+     * @return {@link double} : échantillon filtré.
+     */
+    public double dot(double[] x, int position) {
+        int a = position - first;
+        int last = a - (taps.length - 1);
+        double sum = 0;
+
+        if (symmetric) {
+            int half = taps.length / 2;
+            for (int k = 0; k < half; k++) {
+                sum += (x[a - k] + x[last + k]) * taps[k];
+            }
+            if ((taps.length & 1) == 1) {
+                sum += x[a - half] * taps[half];
+            }
+        } else {
+            for (int k = 0; k < taps.length; k++) {
+                sum += x[a - k] * taps[k];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Comme {@link #dot(double[], int)}, mais les échantillons d'avant le début du signal valent 0.
+     */
+    private double dotEdge(double[] x, int position) {
+        int a = position - first;
+        int last = a - (taps.length - 1);
+        double sum = 0;
+
+        if (symmetric) {
+            int half = taps.length / 2;
+            for (int k = 0; k < half; k++) {
+                sum += (sample(x, a - k) + sample(x, last + k)) * taps[k];
+            }
+            if ((taps.length & 1) == 1) {
+                sum += sample(x, a - half) * taps[half];
+            }
+        } else {
+            for (int k = 0; k < taps.length; k++) {
+                sum += sample(x, a - k) * taps[k];
+            }
+        }
+        return sum;
+    }
+
+    private static double sample(double[] x, int index) {
+        return index >= 0 ? x[index] : 0.0;
+    }
+
+    /**
+     * Boucle principale scalaire.
+     */
+    private static void scalarLoop(FirKernel kernel, double[] x, int base, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = kernel.dot(x, base + i);
+        }
+    }
+
+    /**
+     * Choisit la boucle vectorielle si le module {@code jdk.incubator.vector} est disponible, que la classe
+     * {@code FirKernelVector} de {@code src-vector} est compilée et que la propriété {@code videoscramble.simd}
+     * ne vaut pas {@code false}.
+     */
+    private static MainLoop loadMainLoop() {
+        boolean enabled = !"false".equals(System.getProperty("videoscramble.simd"));
+
+        if (enabled && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (MainLoop) Class.forName("FirKernelVector").getDeclaredConstructor().newInstance();
+            } catch (ClassNotFoundException e) {
+                // Racine src-vector non compilée : la boucle scalaire suffit
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("API Vector indisponible, boucle scalaire utilisée : " + e);
+            }
+        }
+        return SCALAR_LOOP;
+    }
+
+    /**
+     * Indique si la boucle principale utilise l'API Vector.
+     *
+     * @return {@link boolean} : {@code true} si la boucle vectorielle a été chargée.
+     */
+    public static boolean isVectorized() {
+        return MAIN_LOOP != SCALAR_LOOP;
+    }
+
+    /**
+     * Nombre d'échantillons précédents dont dépend une sortie du filtre.
+     *
+     * @return {@link int} : indice dans le filtre d'origine du dernier poids conservé.
+     */
+    public int span() {
+        return first + taps.length - 1;
+    }
+
+    // Getters.
+    public double[] getTaps() {
+        return taps;
+    }
+
+    public int getFirst() {
+        return first;
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+}
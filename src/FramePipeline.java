@@ -0,0 +1,200 @@
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.VideoWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+
+/**
+ * Chaîne de traitement en étages d'un fichier vidéo :
+ * <ul>
+ * <li>un thread de décodage lit les frames avec le {@link VideoCapture} ;</li>
+ * <li>un pool de threads brouille et débrouille les frames ;</li>
+ * <li>un thread de distribution remet les frames dans l'ordre et les transmet à l'aperçu ;</li>
+ * <li>un thread d'écriture par fichier de sortie appelle {@link VideoWriter#write(Mat)}.</li>
+ * </ul>
+ * Les étages sont reliés par des files bornées : un étage trop lent bloque les précédents au lieu de
+ * laisser les frames s'accumuler en mémoire. Le décodage et l'encodage des codecs se font ainsi en même
+ * temps que le brouillage.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class FramePipeline {
+
+    // Marqueur de fin de flux transmis aux étages suivants
+    private static final FrameSet END = new FrameSet(null, null, null, null);
+
+    private final Function<Mat, FrameSet> scrambleStage;
+    private final MatPool pool;
+    private final VideoProcessor.FrameListener frameListener;
+    private final VideoWriter[] writers;
+    private final int[] streams;
+    private final int workers;
+    private final int capacity;
+    private final long frameTime;
+
+
+    /**
+     * Constructeur du FramePipeline.
+     *
+     * @param scrambleStage {@link Function} : brouille une frame et renvoie ses trois versions.
+     * @param pool          {@link MatPool} : réserve où le décodage prend ses frames.
+     * @param frameListener {@link VideoProcessor.FrameListener} : aperçu, ou {@code null}.
+     * @param writers       {@link VideoWriter[]} : fichiers de sortie.
+     * @param streams       {@link int[]} : version de la frame ({@link FrameSet#ORIGINAL}, ...) écrite par chaque writer.
+     * @param workers       {@link int} : nombre de threads de brouillage.
+     * @param capacity      {@link int} : taille des files entre les étages.
+     * @param frameTime     {@link long} : pause en millisecondes après chaque frame, 0 pour ne pas ralentir.
+     */
+    public FramePipeline(Function<Mat, FrameSet> scrambleStage, MatPool pool, VideoProcessor.FrameListener frameListener,
+                         VideoWriter[] writers, int[] streams, int workers, int capacity, long frameTime) {
+        this.scrambleStage = scrambleStage;
+        this.pool = pool;
+        this.frameListener = frameListener;
+        this.writers = writers;
+        this.streams = streams;
+        this.workers = workers;
+        this.capacity = capacity;
+        this.frameTime = frameTime;
+    }
+
+    /**
+     * Traite toutes les frames d'une vidéo et attend que chaque fichier de sortie soit écrit.
+     *
+     * @param videoCapture {@link VideoCapture} : vidéo ouverte à traiter.
+     * @return {@link long} : nombre de frames traitées.
+     */
+    public long run(VideoCapture videoCapture) {
+        return run(videoCapture, Long.MAX_VALUE);
+    }
+
+    /**
+     * Traite au plus {@code maxFrames} frames d'une vidéo, à partir de sa position courante, et attend que
+     * chaque fichier de sortie soit écrit.
+     *
+     * @param videoCapture {@link VideoCapture} : vidéo ouverte à traiter.
+     * @param maxFrames    {@link long} : nombre maximal de frames à lire.
+     * @return {@link long} : nombre de frames traitées.
+     */
+    public long run(VideoCapture videoCapture, long maxFrames) {
+        ExecutorService scramblers = Executors.newFixedThreadPool(workers);
+        ExecutorService stages = Executors.newFixedThreadPool(2 + writers.length);
+        CompletionService<Long> completion = new ExecutorCompletionService<>(stages);
+
+        // Les futures sont rangées dans l'ordre de lecture : c'est ce qui préserve l'ordre des frames
+        BlockingQueue<Future<FrameSet>> inFlight = new ArrayBlockingQueue<>(capacity);
+        List<BlockingQueue<FrameSet>> writerQueues = new ArrayList<>();
+        for (int i = 0; i < writers.length; i++) {
+            writerQueues.add(new ArrayBlockingQueue<>(capacity));
+        }
+
+        List<Future<Long>> futures = new ArrayList<>();
+        futures.add(completion.submit(() -> decode(videoCapture, maxFrames, scramblers, inFlight)));
+        futures.add(completion.submit(() -> dispatch(inFlight, writerQueues)));
+        for (int i = 0; i < writers.length; i++) {
+            int id = i;
+            futures.add(completion.submit(() -> write(writers[id], streams[id], writerQueues.get(id))));
+        }
+
+        long frames = 0;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Long> done = completion.take();
+                if (done == futures.get(0)) {
+                    frames = done.get();
+                } else {
+                    done.get();
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("ERR : traitement de la vidéo", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ERR : traitement de la vidéo interrompu", e);
+        } finally {
+            // En cas d'erreur, interrompt les étages encore bloqués sur une file
+            stages.shutdownNow();
+            scramblers.shutdownNow();
+        }
+
+        return frames;
+    }
+
+    /**
+     * Étage de décodage : lit les frames et confie chacune au pool de brouillage.
+     */
+    private long decode(VideoCapture videoCapture, long maxFrames, ExecutorService scramblers,
+                        BlockingQueue<Future<FrameSet>> inFlight) throws InterruptedException {
+        long frames = 0;
+        Mat frame = pool.acquire();
+
+        while (frames < maxFrames && videoCapture.read(frame)) {
+            Mat current = frame;
+            inFlight.put(scramblers.submit(() -> scrambleStage.apply(current)));
+            frame = pool.acquire();
+            frames++;
+        }
+
+        pool.recycle(frame);
+        inFlight.put(CompletableFuture.completedFuture(END));
+        return frames;
+    }
+
+    /**
+     * Étage de distribution : récupère les frames dans l'ordre, met à jour l'aperçu et alimente les writers.
+     */
+    private long dispatch(BlockingQueue<Future<FrameSet>> inFlight, List<BlockingQueue<FrameSet>> writerQueues)
+            throws InterruptedException, ExecutionException {
+        FrameSet frameSet;
+
+        while ((frameSet = inFlight.take().get()) != END) {
+            if (frameListener != null) {
+                frameListener.onFrame(frameSet.get(FrameSet.ORIGINAL), frameSet.get(FrameSet.CRYPTED),
+                        frameSet.get(FrameSet.DECRYPTED));
+            }
+
+            if (writerQueues.isEmpty()) {
+                frameSet.release();
+            } else {
+                frameSet.retain(writerQueues.size());
+                for (BlockingQueue<FrameSet> queue : writerQueues) {
+                    queue.put(frameSet);
+                }
+            }
+
+            if (frameTime > 0) {
+                Thread.sleep(frameTime);
+            }
+        }
+
+        for (BlockingQueue<FrameSet> queue : writerQueues) {
+            queue.put(END);
+        }
+        return 0L;
+    }
+
+    /**
+     * Étage d'écriture : écrit une des versions de chaque frame dans son fichier.
+     */
+    private long write(VideoWriter writer, int stream, BlockingQueue<FrameSet> queue) throws InterruptedException {
+        FrameSet frameSet;
+
+        while ((frameSet = queue.take()) != END) {
+            writer.write(frameSet.get(stream));
+            frameSet.done();
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,81 @@
+import org.opencv.core.Mat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Les trois versions d'une même frame (originale, cryptée, décryptée) qui circulent ensemble dans la
+ * chaîne de traitement. Les {@link Mat} sont rendues à leur {@link MatPool} (ou libérées s'il n'y en a pas)
+ * quand le dernier consommateur a terminé.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class FrameSet {
+
+    public static final int ORIGINAL = 0;
+    public static final int CRYPTED = 1;
+    public static final int DECRYPTED = 2;
+
+    private final Mat[] mats;
+    private final MatPool pool;
+    private final AtomicInteger pending = new AtomicInteger();
+
+
+    /**
+     * Constructeur du FrameSet.
+     *
+     * @param frame          {@link Mat} : frame originale.
+     * @param frameCrypted   {@link Mat} : frame cryptée.
+     * @param frameDecrypted {@link Mat} : frame décryptée.
+     * @param pool           {@link MatPool} : réserve d'où viennent les frames, ou {@code null}.
+     */
+    public FrameSet(Mat frame, Mat frameCrypted, Mat frameDecrypted, MatPool pool) {
+        this.mats = new Mat[]{frame, frameCrypted, frameDecrypted};
+        this.pool = pool;
+    }
+
+    /**
+     * Indique combien de consommateurs doivent encore appeler {@link #done()} avant la libération.
+     *
+     * @param consumers {@link int} : nombre de consommateurs.
+     */
+    public void retain(int consumers) {
+        pending.set(consumers);
+    }
+
+    /**
+     * Signale qu'un consommateur a fini d'utiliser les frames ; le dernier les libère.
+     */
+    public void done() {
+        if (pending.decrementAndGet() <= 0) {
+            release();
+        }
+    }
+
+    /**
+     * Rend immédiatement les frames à la réserve, ou les libère.
+     */
+    public void release() {
+        for (Mat mat : mats) {
+            if (mat == null) {
+                continue;
+            }
+            if (pool != null) {
+                pool.recycle(mat);
+            } else {
+                mat.release();
+            }
+        }
+    }
+
+    /**
+     * Renvoie une des versions de la frame.
+     *
+     * @param stream {@link int} : {@link #ORIGINAL}, {@link #CRYPTED} ou {@link #DECRYPTED}.
+     * @return la {@link Mat} correspondante.
+     */
+    public Mat get(int stream) {
+        return mats[stream];
+    }
+}
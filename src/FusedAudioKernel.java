@@ -0,0 +1,177 @@
+/**
+ * Filtrage, modulation par la porteuse et second filtrage du débrouillage en une seule passe.
+ * <p>
+ * Le signal est traité par tuiles de {@link #TILE_SIZE} échantillons : chaque tuile est copiée dans un tampon,
+ * filtrée, modulée puis filtrée une seconde fois sur place avant d'être écrite dans la sortie. Le tampon reste
+ * dans le cache : le signal n'est lu et écrit qu'une fois, au lieu de trois passes qui allouent chacune un
+ * tableau de la taille du fichier. Les filtres ({@link SampleFilter}) gardent leur historique d'une tuile à
+ * l'autre et conservent leurs boucles rapides (vectorielles ou par FFT).
+ * <p>
+ * Les sorties sont calculées avec les mêmes opérations, dans le même ordre, que
+ * {@link AudioScrambleController#filtrePasseBas} et {@link CarrierOscillator} : le résultat est identique au
+ * traitement en trois passes. Avec un filtre par FFT ({@link FftConvolver}), l'arrondi dépend de la tuile où
+ * tombe chaque échantillon ; {@link AudioScrambleController#filtrePasseBas} filtre donc par les mêmes tuiles,
+ * et les blocs doivent faire un multiple de {@link #TILE_SIZE} échantillons (sauf le dernier).
+ * <p>
+ * Le signal peut aussi être fourni en entiers 16 bits ({@code short[]}) : il n'occupe alors que deux octets par
+ * échantillon en mémoire, et seule la tuile est en {@code double}.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class FusedAudioKernel implements AudioScrambler.Kernel {
+
+    public static final int TILE_SIZE = 2048;
+    private static final int MAX_16_BIT = 32768;
+
+    private final SampleFilter firstFilter;
+    private final SampleFilter secondFilter;
+    private final CarrierOscillator carrier;
+    private final double[] tile = new double[TILE_SIZE];
+
+
+    /**
+     * Constructeur du FusedAudioKernel.
+     *
+     * @param firstFilter  {@link SampleFilter} : filtre appliqué avant la modulation.
+     * @param secondFilter {@link SampleFilter} : filtre appliqué après la modulation, ou {@code null} pour le brouillage.
+     * @param carrier      {@link CarrierOscillator} : porteuse, positionnée sur le premier échantillon à traiter.
+     */
+    public FusedAudioKernel(SampleFilter firstFilter, SampleFilter secondFilter, CarrierOscillator carrier) {
+        this.firstFilter = firstFilter;
+        this.secondFilter = secondFilter;
+        this.carrier = carrier;
+    }
+
+    /**
+     * Crée le noyau du brouillage ou du débrouillage avec le filtre gaussien et la porteuse de
+     * {@link AudioScrambleController}.
+     *
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param decrypt    {@link boolean} : {@code true} pour ajouter le second filtrage du débrouillage.
+     * @return le {@link FusedAudioKernel} correspondant.
+     */
+    public static FusedAudioKernel of(double sampleRate, boolean decrypt) {
+        return of(AudioScrambleController.gaussian(), sampleRate, decrypt);
+    }
+
+    /**
+     * Crée le noyau du brouillage ou du débrouillage avec un filtre passe-bas donné.
+     *
+     * @param weights    {@link double[]} : poids du filtre passe-bas.
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param decrypt    {@link boolean} : {@code true} pour ajouter le second filtrage du débrouillage.
+     * @return le {@link FusedAudioKernel} correspondant.
+     */
+    public static FusedAudioKernel of(double[] weights, double sampleRate, boolean decrypt) {
+        SampleFilter filter = SampleFilter.of(weights);
+        return new FusedAudioKernel(filter, decrypt ? filter.copy() : null,
+                new CarrierOscillator(AudioScrambleController.FREQUENCY, sampleRate));
+    }
+
+    /**
+     * Traite les échantillons suivants du signal. {@code in} et {@code out} peuvent être le même tableau.
+     *
+     * @param in        {@link double[]} : échantillons à traiter.
+     * @param inOffset  {@link int} : indice du premier échantillon à traiter.
+     * @param out       {@link double[]} : tableau de sortie.
+     * @param outOffset {@link int} : indice de la première sortie.
+     * @param length    {@link int} : nombre d'échantillons.
+     */
+    public void process(double[] in, int inOffset, double[] out, int outOffset, int length) {
+        int done = 0;
+
+        while (done < length) {
+            int count = Math.min(TILE_SIZE, length - done);
+            System.arraycopy(in, inOffset + done, tile, 0, count);
+            processTile(count);
+            System.arraycopy(tile, 0, out, outOffset + done, count);
+            done += count;
+        }
+    }
+
+    /**
+     * Traite les échantillons suivants d'un signal 16 bits. {@code in} et {@code out} peuvent être le même
+     * tableau.
+     * <p>
+     * Seule la tuile en cours est convertie en {@code double} : les échantillons sont décodés comme par
+     * {@link AudioSampleReader} et le résultat encodé comme par {@link AudioSampleWriter}, si bien que la sortie
+     * est identique, au bit près, à celle du traitement en {@code double} suivi d'un enregistrement.
+     *
+     * @param in        {@link short[]} : échantillons à traiter.
+     * @param inOffset  {@link int} : indice du premier échantillon à traiter.
+     * @param out       {@link short[]} : tableau de sortie.
+     * @param outOffset {@link int} : indice de la première sortie.
+     * @param length    {@link int} : nombre d'échantillons.
+     */
+    public void process(short[] in, int inOffset, short[] out, int outOffset, int length) {
+        int done = 0;
+
+        while (done < length) {
+            int count = Math.min(TILE_SIZE, length - done);
+            for (int i = 0; i < count; i++) {
+                tile[i] = in[inOffset + done + i] / ((double) MAX_16_BIT);
+            }
+            processTile(count);
+            for (int i = 0; i < count; i++) {
+                out[outOffset + done + i] = AudioSampleWriter.encode(tile[i]);
+            }
+            done += count;
+        }
+    }
+
+    /**
+     * Filtre, module puis filtre à nouveau les {@code count} premiers échantillons de la tuile, sur place.
+     */
+    private void processTile(int count) {
+        firstFilter.process(tile, count);
+        carrier.modulate(tile, 0, count);
+        if (secondFilter != null) {
+            secondFilter.process(tile, count);
+        }
+    }
+
+    /**
+     * Traite le bloc suivant du signal sur place.
+     *
+     * @param samples {@link short[]} : échantillons 16 bits du bloc, remplacés par le résultat.
+     * @param length  {@link int} : nombre d'échantillons du bloc.
+     */
+    @Override
+    public void process(short[] samples, int length) {
+        process(samples, 0, samples, 0, length);
+    }
+
+    /**
+     * Traite le bloc suivant du signal sur place.
+     *
+     * @param samples {@link double[]} : échantillons du bloc, remplacés par le résultat.
+     * @param length  {@link int} : nombre d'échantillons du bloc.
+     */
+    public void process(double[] samples, int length) {
+        process(samples, 0, samples, 0, length);
+    }
+
+    /**
+     * Traite un signal 16 bits entier sur place.
+     *
+     * @param samples {@link short[]} : échantillons, remplacés par le résultat.
+     */
+    public void process(short[] samples) {
+        process(samples, samples.length);
+    }
+
+    /**
+     * Traite un signal entier sur place.
+     *
+     * @param samples {@link double[]} : échantillons, remplacés par le résultat.
+     */
+    public void process(double[] samples) {
+        process(samples, samples.length);
+    }
+
+    // Getters.
+    public CarrierOscillator getCarrier() {
+        return carrier;
+    }
+}
@@ -0,0 +1,226 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Tables de permutation des lignes utilisées pour brouiller et débrouiller une frame.
+ * <p>
+ * La frame est découpée en blocs successifs dont la taille est une puissance de 2. Dans chaque bloc
+ * commençant à {@code start} et de taille {@code puissance}, la ligne {@code idLine} est envoyée en
+ * {@code ((offset + (2 * step + 1) * idLine) % puissance) + start}. Comme {@code 2 * step + 1} est impair,
+ * cette application est une bijection du bloc : on peut donc calculer une fois pour toutes la table directe
+ * et la table inverse, puis les réutiliser pour toutes les frames de même hauteur.
+ * Les lignes qui ne rentrent dans aucun bloc (dernière ligne d'une hauteur impaire) restent à leur place.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public final class LinePermutation {
+
+    // Nombre de permutations gardées : une par clé et hauteur récemment utilisées
+    private static final int CACHE_SIZE = 8;
+
+    // Cache des dernières permutations utilisées, dans l'ordre d'accès, la plus ancienne étant retirée
+    private static final Map<Key, LinePermutation> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, LinePermutation> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    // Taille minimale (en octets) d'une plage de lignes confiée à une tâche parallèle
+    private static final int MIN_TASK_BYTES = 256 * 1024;
+
+    private final int[] forward;
+    private final int[] inverse;
+
+
+    /**
+     * Construit les tables directe et inverse pour une clé et une hauteur de frame.
+     *
+     * @param offset {@link int} : décalage de la clé.
+     * @param step   {@link int} : pas de la clé.
+     * @param height {@link int} : nombre de lignes de la frame.
+     */
+    private LinePermutation(int offset, int step, int height) {
+        forward = new int[height];
+        inverse = new int[height];
+
+        int remaining = height;
+        int start = 0;
+        int puissance;
+
+        while (remaining >= 2) {
+            puissance = Integer.highestOneBit(remaining);
+
+            for (int idLine = start; idLine < start + puissance; idLine++) {
+                forward[idLine] = ((offset + (2 * step + 1) * idLine) % puissance) + start;
+            }
+
+            remaining -= puissance;
+            start += puissance;
+        }
+
+        for (int idLine = start; idLine < height; idLine++) {
+            forward[idLine] = idLine;
+        }
+
+        for (int idLine = 0; idLine < height; idLine++) {
+            inverse[forward[idLine]] = idLine;
+        }
+    }
+
+    /**
+     * Renvoie la permutation associée à une clé et une hauteur, en la construisant au premier appel.
+     *
+     * @param offset {@link int} : décalage de la clé.
+     * @param step   {@link int} : pas de la clé.
+     * @param height {@link int} : nombre de lignes de la frame.
+     * @return la {@link LinePermutation} mise en cache parmi les dernières utilisées.
+     */
+    public static LinePermutation of(int offset, int step, int height) {
+        Key key = new Key(offset, step, height);
+        synchronized (CACHE) {
+            return CACHE.computeIfAbsent(key, k -> build(offset, step, height));
+        }
+    }
+
+    /**
+     * Construit une permutation sans passer par le cache (utilisé par les benchmarks).
+     *
+     * @param offset {@link int} : décalage de la clé.
+     * @param step   {@link int} : pas de la clé.
+     * @param height {@link int} : nombre de lignes de la frame.
+     * @return une nouvelle {@link LinePermutation}.
+     */
+    static LinePermutation build(int offset, int step, int height) {
+        return new LinePermutation(offset, step, height);
+    }
+
+    /**
+     * Position de destination de chaque ligne lors du brouillage.
+     *
+     * @return {@link int[]} : {@code forward[idLine]} est la nouvelle position de la ligne {@code idLine}.
+     */
+    public int[] forward() {
+        return forward;
+    }
+
+    /**
+     * Position de destination de chaque ligne lors du débrouillage.
+     *
+     * @return {@link int[]} : {@code inverse[idLine]} est la position d'origine de la ligne {@code idLine}.
+     */
+    public int[] inverse() {
+        return inverse;
+    }
+
+    /**
+     * Réordonne les lignes d'une frame stockée de façon contiguë dans un tableau d'octets.
+     *
+     * @param source      {@link byte[]} : pixels de la frame d'entrée, ligne après ligne.
+     * @param destination {@link byte[]} : pixels de la frame de sortie, de même taille que {@code source}.
+     * @param rowBytes    {@link int} : nombre d'octets d'une ligne.
+     * @param encode      {@link boolean} : {@code true} pour brouiller, {@code false} pour débrouiller.
+     */
+    public void apply(byte[] source, byte[] destination, int rowBytes, boolean encode) {
+        copyRows(source, destination, rowBytes, encode ? forward : inverse, 0, forward.length);
+    }
+
+    /**
+     * Réordonne les lignes d'une frame en répartissant des plages de lignes sur un pool de threads.
+     * Chaque ligne ayant une destination propre, les plages peuvent être copiées indépendamment.
+     *
+     * @param source      {@link byte[]} : pixels de la frame d'entrée, ligne après ligne.
+     * @param destination {@link byte[]} : pixels de la frame de sortie, de même taille que {@code source}.
+     * @param rowBytes    {@link int} : nombre d'octets d'une ligne.
+     * @param encode      {@link boolean} : {@code true} pour brouiller, {@code false} pour débrouiller.
+     * @param pool        {@link ForkJoinPool} : pool qui exécute les copies.
+     */
+    public void apply(byte[] source, byte[] destination, int rowBytes, boolean encode, ForkJoinPool pool) {
+        pool.invoke(new RowRangeTask(source, destination, rowBytes, encode ? forward : inverse, 0, forward.length));
+    }
+
+    /**
+     * Copie les lignes {@code [from, to)} de la source vers leur position dans la destination.
+     */
+    private static void copyRows(byte[] source, byte[] destination, int rowBytes, int[] positions, int from, int to) {
+        for (int idLine = from; idLine < to; idLine++) {
+            System.arraycopy(source, idLine * rowBytes, destination, positions[idLine] * rowBytes, rowBytes);
+        }
+    }
+
+    /**
+     * Tâche qui coupe récursivement une plage de lignes en deux jusqu'à atteindre {@link #MIN_TASK_BYTES}.
+     */
+    private static class RowRangeTask extends RecursiveAction {
+        private final byte[] source;
+        private final byte[] destination;
+        private final int rowBytes;
+        private final int[] positions;
+        private final int from;
+        private final int to;
+
+        RowRangeTask(byte[] source, byte[] destination, int rowBytes, int[] positions, int from, int to) {
+            this.source = source;
+            this.destination = destination;
+            this.rowBytes = rowBytes;
+            this.positions = positions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2 || (long) (to - from) * rowBytes <= MIN_TASK_BYTES) {
+                copyRows(source, destination, rowBytes, positions, from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowRangeTask(source, destination, rowBytes, positions, from, middle),
+                    new RowRangeTask(source, destination, rowBytes, positions, middle, to));
+        }
+    }
+
+    /**
+     * Nombre de lignes couvertes par la permutation.
+     *
+     * @return {@link int} : hauteur de la frame.
+     */
+    public int height() {
+        return forward.length;
+    }
+
+    /**
+     * Clé du cache : clé de brouillage et hauteur de frame.
+     */
+    private static final class Key {
+        private final int offset;
+        private final int step;
+        private final int height;
+
+        Key(int offset, int step, int height) {
+            this.offset = offset;
+            this.step = step;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return offset == key.offset && step == key.step && height == key.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(offset, step, height);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Applique la permutation des lignes d'une clé (offset, step) à des frames OpenCV.
+ * <p>
+ * Pour les frames 8 bits continues, la frame traverse une seule fois la frontière JNI dans chaque sens
+ * ({@link Mat#get(int, int, byte[])} puis {@link Mat#put(int, int, byte[])}) et les lignes sont réordonnées
+ * dans un tampon Java avec {@link System#arraycopy}. Les autres frames sont traitées ligne par ligne.
+ * <p>
+ * En mode parallèle, les frames d'au moins {@link #getParallelThreshold()} octets sont réparties sur un
+ * {@link ForkJoinPool} ; les plus petites restent sur le thread appelant pour ne pas payer le coût du fork.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class LineScrambler {
+
+    // Tampons réutilisés d'une frame à l'autre, un jeu par thread de traitement
+    private static final ThreadLocal<byte[][]> BUFFERS = ThreadLocal.withInitial(() -> new byte[2][0]);
+
+    // 2 Mo : une frame 720p BGR (2,7 Mo) passe en parallèle, une frame 480p reste séquentielle
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2 * 1024 * 1024;
+
+    private final int offset;
+    private final int step;
+    private boolean parallel = false;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+
+    /**
+     * Constructeur du LineScrambler.
+     *
+     * @param offset {@link int} : décalage de la clé.
+     * @param step   {@link int} : pas de la clé.
+     */
+    public LineScrambler(int offset, int step) {
+        this.offset = offset;
+        this.step = step;
+    }
+
+    /**
+     * Brouille ou débrouille les lignes d'une frame.
+     *
+     * @param frame       {@link Mat} : frame d'entrée.
+     * @param outputFrame {@link Mat} : frame de sortie, (ré)allouée si besoin à la taille de {@code frame}.
+     * @param encode      {@link boolean} : {@code true} pour brouiller, {@code false} pour débrouiller.
+     */
+    public void scramble(Mat frame, Mat outputFrame, boolean encode) {
+        LinePermutation permutation = LinePermutation.of(offset, step, frame.rows());
+        outputFrame.create(frame.rows(), frame.cols(), frame.type());
+
+        if (frame.depth() != CvType.CV_8U || !frame.isContinuous() || !outputFrame.isContinuous()) {
+            int[] positions = encode ? permutation.forward() : permutation.inverse();
+
+            for (int idLine = 0; idLine < positions.length; idLine++) {
+                frame.row(idLine).copyTo(outputFrame.row(positions[idLine]));
+            }
+            return;
+        }
+
+        int rowBytes = frame.cols() * frame.channels();
+        int length = rowBytes * frame.rows();
+        byte[][] buffers = BUFFERS.get();
+
+        if (buffers[0].length != length) {
+            buffers[0] = new byte[length];
+            buffers[1] = new byte[length];
+        }
+
+        frame.get(0, 0, buffers[0]);
+        if (parallel && length >= parallelThreshold) {
+            permutation.apply(buffers[0], buffers[1], rowBytes, encode, pool);
+        } else {
+            permutation.apply(buffers[0], buffers[1], rowBytes, encode);
+        }
+        outputFrame.put(0, 0, buffers[1]);
+    }
+
+    // Getters.
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+
+    // Setters.
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+}
@@ -0,0 +1,76 @@
+import org.opencv.core.Mat;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * Réserve de {@link Mat} de même taille et de même type, réutilisées d'une frame à l'autre.
+ * <p>
+ * Sans réserve, chaque frame alloue de nouvelles {@link Mat} dont la mémoire native n'est rendue qu'au
+ * passage du ramasse-miettes. Ici les {@link Mat} rendues avec {@link #recycle(Mat)} sont redonnées par
+ * {@link #acquire()} : la mémoire native reste stable pendant une longue capture.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class MatPool {
+
+    private final int rows;
+    private final int cols;
+    private final int type;
+    private final BlockingQueue<Mat> free;
+
+
+    /**
+     * Constructeur du MatPool.
+     *
+     * @param rows        {@link int} : hauteur des frames.
+     * @param cols        {@link int} : largeur des frames.
+     * @param type        {@link int} : type OpenCV des frames (par exemple {@code CvType.CV_8UC3}).
+     * @param capacity    {@link int} : nombre maximal de {@link Mat} conservées en réserve.
+     * @param preallocate {@link int} : nombre de {@link Mat} allouées dès la création.
+     */
+    public MatPool(int rows, int cols, int type, int capacity, int preallocate) {
+        this.rows = rows;
+        this.cols = cols;
+        this.type = type;
+        this.free = new ArrayBlockingQueue<>(capacity);
+
+        for (int i = 0; i < Math.min(preallocate, capacity); i++) {
+            free.add(new Mat(rows, cols, type));
+        }
+    }
+
+    /**
+     * Prend une {@link Mat} libre dans la réserve, ou en alloue une si la réserve est vide.
+     *
+     * @return une {@link Mat} de la taille et du type de la réserve.
+     */
+    public Mat acquire() {
+        Mat mat = free.poll();
+        return mat != null ? mat : new Mat(rows, cols, type);
+    }
+
+    /**
+     * Rend une {@link Mat} à la réserve. Elle est libérée si elle n'a plus le bon format
+     * ou si la réserve est pleine.
+     *
+     * @param mat {@link Mat} : matrice qui n'est plus utilisée.
+     */
+    public void recycle(Mat mat) {
+        if (mat.rows() != rows || mat.cols() != cols || mat.type() != type || !free.offer(mat)) {
+            mat.release();
+        }
+    }
+
+    /**
+     * Libère toutes les {@link Mat} de la réserve.
+     */
+    public void clear() {
+        Mat mat;
+        while ((mat = free.poll()) != null) {
+            mat.release();
+        }
+    }
+}
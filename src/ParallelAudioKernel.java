@@ -0,0 +1,215 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Version parallèle de {@link FusedAudioKernel} : chaque bloc est découpé en morceaux traités sur un
+ * {@link ForkJoinPool}.
+ * <p>
+ * Un échantillon de sortie ne dépend que des {@link #getHalo()} échantillons d'entrée qui le précèdent (historique
+ * des deux filtres) et de son indice absolu (phase de la porteuse). Chaque morceau vide donc les filtres d'un
+ * noyau, place sa porteuse sur l'indice absolu où commence la préparation, le prépare en lui faisant traiter les
+ * échantillons qui précèdent le morceau (résultat ignoré) puis traite ses propres échantillons.
+ * <p>
+ * Un filtre par FFT ({@link FftConvolver}) arrondit différemment selon la tuile de {@link FusedAudioKernel#TILE_SIZE}
+ * échantillons où tombe chaque sortie. Les morceaux commencent donc sur une frontière de tuile du signal, et la
+ * préparation commence elle aussi sur une frontière de tuile, au moins une tuile avant le halo : chaque tuile dont
+ * dépend un morceau est transformée exactement comme dans le traitement séquentiel. Tant que les blocs font un
+ * multiple de {@link FusedAudioKernel#TILE_SIZE} échantillons (sauf le dernier), comme ceux d'{@link AudioScrambler},
+ * le résultat est identique au traitement séquentiel, avec un filtre direct comme avec un filtre par FFT.
+ * <p>
+ * Chaque thread du pool garde son noyau, ses copies des filtres et son tampon de préparation d'un morceau à
+ * l'autre : traiter un morceau n'alloue rien.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class ParallelAudioKernel implements AudioScrambler.Kernel {
+
+    public static final int MIN_CHUNK_SIZE = 1 << 15;
+
+    private final SampleFilter firstFilter;
+    private final SampleFilter secondFilter;
+    private final double sampleRate;
+    private final int halo;
+    // Échantillons des blocs précédents gardés pour préparer les morceaux : halo plus deux tuiles d'alignement
+    private final int reach;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    private short[] input;
+    private long position = 0;
+
+
+    /**
+     * Constructeur du ParallelAudioKernel.
+     *
+     * @param firstFilter  {@link SampleFilter} : filtre appliqué avant la modulation, copié pour chaque thread du pool.
+     * @param secondFilter {@link SampleFilter} : filtre appliqué après la modulation, ou {@code null} pour le brouillage.
+     * @param sampleRate   {@link double} : taux d'échantillonnage de l'audio.
+     * @param pool         {@link ForkJoinPool} : pool exécutant les morceaux.
+     */
+    public ParallelAudioKernel(SampleFilter firstFilter, SampleFilter secondFilter, double sampleRate, ForkJoinPool pool) {
+        this.firstFilter = firstFilter;
+        this.secondFilter = secondFilter;
+        this.sampleRate = sampleRate;
+        this.halo = firstFilter.span() + (secondFilter != null ? secondFilter.span() : 0);
+        this.reach = halo + 2 * FusedAudioKernel.TILE_SIZE;
+        this.pool = pool;
+        this.input = new short[reach];
+    }
+
+    /**
+     * Crée le noyau parallèle du brouillage ou du débrouillage avec le filtre gaussien de
+     * {@link AudioScrambleController}.
+     *
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param decrypt    {@link boolean} : {@code true} pour ajouter le second filtrage du débrouillage.
+     * @param pool       {@link ForkJoinPool} : pool exécutant les morceaux.
+     * @return le {@link ParallelAudioKernel} correspondant.
+     */
+    public static ParallelAudioKernel of(double sampleRate, boolean decrypt, ForkJoinPool pool) {
+        return of(AudioScrambleController.gaussian(), sampleRate, decrypt, pool);
+    }
+
+    /**
+     * Crée le noyau parallèle du brouillage ou du débrouillage avec un filtre passe-bas donné.
+     *
+     * @param weights    {@link double[]} : poids du filtre passe-bas.
+     * @param sampleRate {@link double} : taux d'échantillonnage de l'audio.
+     * @param decrypt    {@link boolean} : {@code true} pour ajouter le second filtrage du débrouillage.
+     * @param pool       {@link ForkJoinPool} : pool exécutant les morceaux.
+     * @return le {@link ParallelAudioKernel} correspondant.
+     */
+    public static ParallelAudioKernel of(double[] weights, double sampleRate, boolean decrypt, ForkJoinPool pool) {
+        SampleFilter filter = SampleFilter.of(weights);
+        return new ParallelAudioKernel(filter, decrypt ? filter : null, sampleRate, pool);
+    }
+
+    /**
+     * Traite le bloc suivant du signal.
+     *
+     * @param samples {@link short[]} : échantillons 16 bits du bloc, remplacés par le résultat.
+     * @param length  {@link int} : nombre d'échantillons du bloc.
+     */
+    @Override
+    public void process(short[] samples, int length) {
+        if (input.length < reach + length) {
+            short[] larger = new short[reach + length];
+            System.arraycopy(input, 0, larger, 0, reach);
+            input = larger;
+        }
+
+        // input = [fin des blocs précédents | bloc] : les morceaux lisent input et écrivent dans samples
+        System.arraycopy(samples, 0, input, reach, length);
+
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, length / (4 * pool.getParallelism()) + 1);
+        pool.invoke(new ChunkTask(samples, chunkSize, 0, length));
+
+        System.arraycopy(input, length, input, 0, reach);
+        position += length;
+    }
+
+    /**
+     * Traite un signal entier sur place.
+     *
+     * @param samples {@link short[]} : échantillons 16 bits, remplacés par le résultat.
+     */
+    public void process(short[] samples) {
+        process(samples, samples.length);
+    }
+
+    /**
+     * Traite les échantillons {@code [from, to)} du bloc courant avec le noyau du thread, préparé sur les
+     * échantillons qui les précèdent.
+     */
+    private void processChunk(short[] samples, int from, int to) {
+        long start = position + from;
+        // Au début du signal, l'historique est vide : la préparation est raccourcie comme dans le traitement
+        // séquentiel
+        long prepared = Math.max(0, alignToTile(start - halo - FusedAudioKernel.TILE_SIZE));
+        int length = (int) (start - prepared);
+
+        Worker worker = workers.get();
+        worker.reset(prepared);
+        worker.kernel.process(input, reach + from - length, worker.ignored, 0, length);
+        worker.kernel.process(input, reach + from, samples, from, to - from);
+    }
+
+    /**
+     * Début de la tuile qui contient un échantillon.
+     *
+     * @param index {@link long} : indice absolu de l'échantillon.
+     * @return {@link long} : indice absolu du premier échantillon de sa tuile.
+     */
+    private static long alignToTile(long index) {
+        return index - Math.floorMod(index, (long) FusedAudioKernel.TILE_SIZE);
+    }
+
+    /**
+     * Noyau d'un thread du pool, réutilisé pour chacun des morceaux qu'il traite.
+     */
+    private class Worker {
+        private final SampleFilter first = firstFilter.copy();
+        private final SampleFilter second = secondFilter != null ? secondFilter.copy() : null;
+        private final CarrierOscillator carrier = new CarrierOscillator(AudioScrambleController.FREQUENCY, sampleRate);
+        private final FusedAudioKernel kernel = new FusedAudioKernel(first, second, carrier);
+        // Sortie de la préparation, jamais lue
+        private final short[] ignored = new short[reach];
+
+        /**
+         * Vide les filtres et place la porteuse sur le début de la préparation.
+         */
+        private void reset(long prepared) {
+            first.reset();
+            if (second != null) {
+                second.reset();
+            }
+            carrier.seek(prepared);
+        }
+    }
+
+    /**
+     * Tâche qui coupe récursivement une plage d'échantillons en deux jusqu'à la taille d'un morceau.
+     */
+    private class ChunkTask extends RecursiveAction {
+        private final short[] samples;
+        private final int chunkSize;
+        private final int from;
+        private final int to;
+
+        ChunkTask(short[] samples, int chunkSize, int from, int to) {
+            this.samples = samples;
+            this.chunkSize = chunkSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                processChunk(samples, from, to);
+                return;
+            }
+
+            // Coupe sur une frontière de tuile, pour que chaque morceau commence au début d'une tuile
+            int middle = (from + to) >>> 1;
+            middle -= (int) Math.floorMod(position + middle, (long) FusedAudioKernel.TILE_SIZE);
+            if (middle <= from) {
+                processChunk(samples, from, to);
+                return;
+            }
+            invokeAll(new ChunkTask(samples, chunkSize, from, middle),
+                    new ChunkTask(samples, chunkSize, middle, to));
+        }
+    }
+
+    // Getters.
+    public int getHalo() {
+        return halo;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,72 @@
+import javafx.scene.image.ImageView;
+import org.opencv.core.Mat;
+
+
+/**
+ * Planifie l'aperçu des trois vues (originale, cryptée, décryptée) pendant un traitement.
+ * <p>
+ * Chaque vue a une {@link PreviewSurface} qui ne garde que la dernière frame. Les frames qui arrivent
+ * plus vite que la cadence maximale de l'aperçu sont ignorées, et les frames peuvent être réduites à la
+ * taille affichée à l'écran avant d'être transmises au thread JavaFX. L'aperçu ne ralentit donc jamais
+ * le traitement et n'accumule pas de frames en mémoire.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class PreviewScheduler implements VideoProcessor.FrameListener {
+
+    private final PreviewSurface previewOriginal;
+    private final PreviewSurface previewCoded;
+    private final PreviewSurface previewDecoded;
+    private long minInterval;
+    private int maxWidth;
+    private long lastFrame = 0;
+
+
+    /**
+     * Constructeur du PreviewScheduler.
+     *
+     * @param viewOriginal {@link ImageView} : vue de la vidéo originale.
+     * @param viewCoded    {@link ImageView} : vue de la vidéo cryptée.
+     * @param viewDecoded  {@link ImageView} : vue de la vidéo décryptée.
+     * @param maxFps       {@link double} : cadence maximale de l'aperçu, 0 pour ne pas la limiter.
+     * @param maxWidth     {@link int} : largeur maximale de l'aperçu, 0 pour garder la taille des frames.
+     */
+    public PreviewScheduler(ImageView viewOriginal, ImageView viewCoded, ImageView viewDecoded,
+                            double maxFps, int maxWidth) {
+        this.previewOriginal = new PreviewSurface(viewOriginal);
+        this.previewCoded = new PreviewSurface(viewCoded);
+        this.previewDecoded = new PreviewSurface(viewDecoded);
+        setMaxFps(maxFps);
+        setMaxWidth(maxWidth);
+    }
+
+    /**
+     * Transmet les frames aux vues, sauf si la précédente mise à jour est trop récente.
+     *
+     * @param frame          {@link Mat} : frame originale.
+     * @param frameCrypted   {@link Mat} : frame cryptée.
+     * @param frameDecrypted {@link Mat} : frame décryptée.
+     */
+    @Override
+    public synchronized void onFrame(Mat frame, Mat frameCrypted, Mat frameDecrypted) {
+        long now = System.nanoTime();
+        if (lastFrame != 0 && now - lastFrame < minInterval) {
+            return;
+        }
+        lastFrame = now;
+
+        previewOriginal.submit(frame, maxWidth);
+        previewCoded.submit(frameCrypted, maxWidth);
+        previewDecoded.submit(frameDecrypted, maxWidth);
+    }
+
+    // Setters.
+    public synchronized void setMaxFps(double maxFps) {
+        this.minInterval = maxFps > 0 ? (long) (1e9 / maxFps) : 0;
+    }
+
+    public synchronized void setMaxWidth(int maxWidth) {
+        this.maxWidth = maxWidth;
+    }
+}
@@ -0,0 +1,121 @@
+import javafx.application.Platform;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Surface d'affichage d'un {@link ImageView} alimentée directement par OpenCV.
+ * <p>
+ * L'image affichée est une {@link WritableImage} adossée à un {@link PixelBuffer} sur un {@link ByteBuffer}
+ * direct. Une {@link Mat} BGRA partage ce même tampon, sans {@code BufferedImage} ni allocation par frame.
+ * <p>
+ * La frame déposée appartient au pipeline, qui la recycle dès le retour de {@link #submit(Mat, int)}, et le
+ * tampon de l'image ne peut être modifié que par le thread JavaFX, pendant
+ * {@link PixelBuffer#updateBuffer(javafx.util.Callback)}. La frame est donc convertie en BGRA (et réduite) dans
+ * un emplacement par le thread qui la dépose, puis le thread JavaFX n'a plus qu'une copie simple de cet
+ * emplacement vers le tampon de l'image.
+ * <p>
+ * La surface ne garde qu'une frame en attente : si le thread JavaFX est en retard, la frame suivante
+ * remplace la précédente au lieu de s'empiler, et il n'y a jamais plus d'un rafraîchissement en attente.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class PreviewSurface {
+
+    private final ImageView imageView;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    // Frame déjà convertie en BGRA, en attente d'affichage
+    private final Mat slot = new Mat();
+    private final Mat scaled = new Mat();
+    private final Size scaledSize = new Size();
+    private boolean dirty = false;
+
+    // Utilisés uniquement par le thread JavaFX
+    private PixelBuffer<ByteBuffer> pixelBuffer;
+    private Mat bufferMat;
+
+    // Créé une seule fois pour ne pas allouer de Runnable à chaque frame
+    private final Runnable render = this::render;
+
+
+    /**
+     * Constructeur de la PreviewSurface.
+     *
+     * @param imageView {@link ImageView} : vue où afficher les frames.
+     */
+    public PreviewSurface(ImageView imageView) {
+        this.imageView = imageView;
+    }
+
+    /**
+     * Dépose une frame dans l'emplacement de la surface et demande son affichage au thread JavaFX.
+     *
+     * @param frame    {@link Mat} : frame BGR ou en niveaux de gris à afficher.
+     * @param maxWidth {@link int} : largeur maximale de l'aperçu, 0 pour garder la taille de la frame.
+     */
+    public void submit(Mat frame, int maxWidth) {
+        if (frame == null || frame.empty()) {
+            return;
+        }
+
+        synchronized (slot) {
+            Mat source = frame;
+            if (maxWidth > 0 && frame.cols() > maxWidth) {
+                scaledSize.width = maxWidth;
+                scaledSize.height = Math.max(1, Math.round((double) frame.rows() * maxWidth / frame.cols()));
+                Imgproc.resize(frame, scaled, scaledSize, 0, 0, Imgproc.INTER_AREA);
+                source = scaled;
+            }
+            Imgproc.cvtColor(source, slot, source.channels() > 1 ? Imgproc.COLOR_BGR2BGRA : Imgproc.COLOR_GRAY2BGRA);
+            dirty = true;
+        }
+
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(render);
+        }
+    }
+
+    /**
+     * Copie la dernière frame déposée dans le tampon de l'image puis la rafraîchit (thread JavaFX).
+     */
+    private void render() {
+        scheduled.set(false);
+
+        synchronized (slot) {
+            if (!dirty) {
+                return;
+            }
+            if (bufferMat == null || bufferMat.rows() != slot.rows() || bufferMat.cols() != slot.cols()) {
+                allocate(slot.cols(), slot.rows());
+            }
+
+            slot.copyTo(bufferMat);
+            dirty = false;
+        }
+
+        pixelBuffer.updateBuffer(buffer -> null);
+    }
+
+    /**
+     * (Ré)alloue le tampon direct, la {@link Mat} qui le partage et l'image JavaFX associée (thread JavaFX).
+     *
+     * @param width  {@link int} : largeur de l'aperçu.
+     * @param height {@link int} : hauteur de l'aperçu.
+     */
+    private void allocate(int width, int height) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4);
+        pixelBuffer = new PixelBuffer<>(width, height, buffer, PixelFormat.getByteBgraPreInstance());
+        bufferMat = new Mat(height, width, CvType.CV_8UC4, buffer);
+        imageView.setImage(new WritableImage(pixelBuffer));
+    }
+}
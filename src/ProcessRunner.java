@@ -0,0 +1,335 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Exécute des commandes externes (FFMPEG) sur un nombre limité de threads.
+ * <p>
+ * La sortie de chaque processus est lue au fur et à mesure par un thread dédié : un processus bavard ne peut
+ * plus se bloquer sur un tube plein. Seule la fin de la sortie ({@link #getCaptureLimit()} octets) est gardée,
+ * pour expliquer un échec. Chaque commande a un délai maximal, son code de retour est vérifié et sa durée est
+ * mesurée ({@link Result}) ; seuls les {@link #HISTORY_SIZE} derniers résultats sont gardés, sans leur sortie,
+ * pour qu'un ProcessRunner partagé par un long traitement par lots ne grossisse pas à chaque commande. Une commande soumise peut être annulée avec {@link Future#cancel(boolean)} : son
+ * processus est alors tué. Le pool est arrêté par {@link #close()}.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class ProcessRunner implements AutoCloseable {
+
+    public static final int DEFAULT_CAPTURE_LIMIT = 1 << 16;
+    public static final int HISTORY_SIZE = 256;
+
+    private final ExecutorService pool;
+    private final long timeout;
+    private final int captureLimit;
+    // Derniers résultats, du plus ancien au plus récent
+    private final Deque<Result> results = new ArrayDeque<>();
+
+
+    /**
+     * Constructeur du ProcessRunner.
+     *
+     * @param parallelism {@link int} : nombre maximal de commandes soumises exécutées en même temps.
+     * @param timeout     {@link long} : délai maximal d'attente de la fin d'une commande.
+     * @param unit        {@link TimeUnit} : unité du délai.
+     */
+    public ProcessRunner(int parallelism, long timeout, TimeUnit unit) {
+        if (parallelism < 1 || timeout <= 0) {
+            throw new IllegalArgumentException("parallelism and timeout must be positive");
+        }
+        this.pool = Executors.newFixedThreadPool(parallelism, runnable -> daemon(runnable, "process-runner"));
+        this.timeout = unit.toNanos(timeout);
+        this.captureLimit = DEFAULT_CAPTURE_LIMIT;
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Soumet une commande au pool. La commande n'a pas d'entrée ; sa sortie standard et sa sortie d'erreur
+     * sont capturées ensemble.
+     *
+     * @param command {@link String} : commande et ses arguments.
+     * @return {@link Future} : résultat de la commande ; {@link Future#get()} lève une {@link ExecutionException}
+     * si elle échoue, dépasse le délai ou est annulée.
+     */
+    public Future<Result> submit(String... command) {
+        return pool.submit(() -> launch(false, command).await());
+    }
+
+    /**
+     * Exécute une commande dans le pool et attend son résultat.
+     *
+     * @param command {@link String} : commande et ses arguments.
+     * @return {@link Result} : résultat de la commande.
+     * @throws IllegalStateException si la commande échoue, dépasse le délai ou si l'attente est interrompue.
+     */
+    public Result run(String... command) {
+        return await(submit(command));
+    }
+
+    /**
+     * Attend le résultat d'une commande soumise.
+     *
+     * @param future {@link Future} : commande soumise avec {@link #submit(String...)}.
+     * @return {@link Result} : résultat de la commande.
+     * @throws IllegalStateException si la commande échoue, dépasse le délai ou si l'attente est interrompue.
+     */
+    public static Result await(Future<Result> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ERR : attente d'une commande interrompue", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("ERR : exécution d'une commande", e.getCause());
+        }
+    }
+
+    /**
+     * Attend toutes les commandes soumises ; si l'une échoue, les autres sont annulées.
+     *
+     * @param futures {@link List} : commandes soumises avec {@link #submit(String...)}.
+     * @return {@link List} : résultats, dans l'ordre des commandes.
+     * @throws IllegalStateException si une commande échoue, dépasse le délai ou si l'attente est interrompue.
+     */
+    public static List<Result> awaitAll(List<Future<Result>> futures) {
+        List<Result> done = new ArrayList<>();
+        try {
+            for (Future<Result> future : futures) {
+                done.add(await(future));
+            }
+        } catch (RuntimeException e) {
+            for (Future<Result> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        return done;
+    }
+
+    /**
+     * Lance une commande hors du pool, avec son entrée et sa sortie standard reliées à Java (par exemple un
+     * FFMPEG qui lit ou écrit du son dans un tube). Seule sa sortie d'erreur est capturée.
+     *
+     * @param command {@link String} : commande et ses arguments.
+     * @return {@link Running} : processus lancé, à attendre avec {@link Running#await()}.
+     */
+    public Running start(String... command) {
+        return launch(true, command);
+    }
+
+    private Running launch(boolean piped, String... command) {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        if (!piped) {
+            builder.redirectErrorStream(true);
+        }
+
+        Process process;
+        try {
+            process = builder.start();
+            if (!piped) {
+                // Rien à lire sur l'entrée : FFMPEG ne doit pas y attendre de touche
+                process.getOutputStream().close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("ERR : lancement de " + command[0], e);
+        }
+        return new Running(command, process, piped ? process.getErrorStream() : process.getInputStream());
+    }
+
+    /**
+     * Arrête le pool : les commandes soumises encore en cours sont interrompues et leur processus tué.
+     * Les processus lancés avec {@link #start(String...)} ne sont pas concernés.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    // Getters.
+    public int getCaptureLimit() {
+        return captureLimit;
+    }
+
+    /**
+     * Résultats des {@link #HISTORY_SIZE} dernières commandes terminées, dans l'ordre de leur fin. Leur sortie
+     * n'est pas gardée : {@link Result#getOutput()} y est vide.
+     *
+     * @return {@link List} : copie des résultats.
+     */
+    public List<Result> getResults() {
+        synchronized (results) {
+            return new ArrayList<>(results);
+        }
+    }
+
+
+    /**
+     * Processus en cours, dont la sortie est capturée par un thread dédié.
+     */
+    public class Running {
+        private final String[] command;
+        private final Process process;
+        private final long start = System.nanoTime();
+        private final Thread drain;
+        // Fin de la sortie, dans un tampon circulaire
+        private final byte[] capture = new byte[captureLimit];
+        private long captured = 0;
+
+        private Running(String[] command, Process process, InputStream output) {
+            this.command = command;
+            this.process = process;
+            this.drain = daemon(() -> drain(output), "process-output");
+            drain.start();
+        }
+
+        private void drain(InputStream output) {
+            byte[] buffer = new byte[8192];
+            try (InputStream in = output) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    synchronized (capture) {
+                        for (int i = 0; i < n; i++) {
+                            capture[(int) (captured++ % capture.length)] = buffer[i];
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Le processus a été tué : la sortie déjà lue suffit
+            }
+        }
+
+        /**
+         * Attend la fin du processus, dans la limite du délai, puis vérifie son code de retour.
+         *
+         * @return {@link Result} : résultat de la commande.
+         * @throws IllegalStateException si la commande échoue, dépasse le délai ou si l'attente est interrompue.
+         */
+        public Result await() {
+            try {
+                if (!process.waitFor(timeout - (System.nanoTime() - start), TimeUnit.NANOSECONDS)) {
+                    cancel();
+                    throw new IllegalStateException("ERR : délai dépassé pour " + String.join(" ", command)
+                            + System.lineSeparator() + getOutput());
+                }
+                drain.join();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("ERR : " + command[0] + " interrompu", e);
+            }
+
+            Result result = new Result(command, process.exitValue(), System.nanoTime() - start, getOutput());
+            synchronized (results) {
+                if (results.size() == HISTORY_SIZE) {
+                    results.removeFirst();
+                }
+                results.addLast(new Result(command, result.getExitCode(), result.getElapsed(), ""));
+            }
+            if (result.getExitCode() != 0) {
+                throw new IllegalStateException("ERR : " + String.join(" ", command) + " (code "
+                        + result.getExitCode() + ")" + System.lineSeparator() + result.getOutput());
+            }
+            return result;
+        }
+
+        /**
+         * Tue le processus.
+         */
+        public void cancel() {
+            process.destroyForcibly();
+        }
+
+        /**
+         * Fin de la sortie capturée jusqu'ici.
+         *
+         * @return {@link String} : au plus {@link #getCaptureLimit()} derniers octets de la sortie.
+         */
+        public String getOutput() {
+            synchronized (capture) {
+                int length = (int) Math.min(captured, capture.length);
+                int from = (int) ((captured - length) % capture.length);
+                byte[] tail = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    tail[i] = capture[(from + i) % capture.length];
+                }
+                return new String(tail, StandardCharsets.UTF_8);
+            }
+        }
+
+        // Getters.
+        public String[] getCommand() {
+            return Arrays.copyOf(command, command.length);
+        }
+
+        public Process getProcess() {
+            return process;
+        }
+    }
+
+
+    /**
+     * Résultat d'une commande terminée.
+     */
+    public static final class Result {
+        private final String[] command;
+        private final int exitCode;
+        private final long elapsed;
+        private final String output;
+
+        private Result(String[] command, int exitCode, long elapsed, String output) {
+            this.command = command;
+            this.exitCode = exitCode;
+            this.elapsed = elapsed;
+            this.output = output;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s : %.2f s (code %d)", command[0], command[command.length - 1],
+                    elapsed / 1e9, exitCode);
+        }
+
+        // Getters.
+        public String[] getCommand() {
+            return Arrays.copyOf(command, command.length);
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * Durée de la commande, de son lancement à sa fin.
+         *
+         * @return {@link long} : durée en nanosecondes.
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        public String getOutput() {
+            return output;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Filtre à réponse impulsionnelle finie appliqué bloc par bloc, qui garde l'historique nécessaire d'un bloc
+ * au suivant.
+ * <p>
+ * {@link #of(double[])} choisit l'implémentation d'après la longueur du filtre : convolution directe
+ * ({@link FirFilter}) pour les filtres courts comme le filtre gaussien, convolution par FFT
+ * ({@link FftConvolver}) au-delà de {@link #FFT_THRESHOLD} poids. Le seuil ne dépend pas de l'API Vector : la
+ * convolution par FFT arrondit autrement que la convolution directe, et un même fichier brouillé avec la même clé
+ * doit donner les mêmes échantillons quelles que soient les options de la JVM.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public interface SampleFilter {
+
+    int FFT_THRESHOLD = 48;
+
+    /**
+     * Filtre un bloc d'échantillons à la suite des blocs déjà filtrés.
+     *
+     * @param samples {@link double[]} : échantillons à filtrer, remplacés par le résultat.
+     * @param length  {@link int} : nombre d'échantillons du bloc.
+     */
+    void process(double[] samples, int length);
+
+    /**
+     * Nombre d'échantillons précédents dont dépend une sortie du filtre.
+     *
+     * @return {@link int} : longueur de l'historique.
+     */
+    int span();
+
+    /**
+     * Vide l'historique : le bloc suivant est filtré comme le début d'un signal.
+     */
+    void reset();
+
+    /**
+     * Crée un filtre de mêmes poids, à l'historique vide. Les données immuables (poids, spectre) sont partagées.
+     *
+     * @return le nouveau {@link SampleFilter}.
+     */
+    SampleFilter copy();
+
+    /**
+     * Crée le filtre le plus rapide pour ces poids, les poids négligeables des extrémités étant retirés.
+     *
+     * @param weights {@link double[]} : poids du filtre, {@code weights[j]} s'appliquant à l'échantillon {@code i - j}.
+     * @return le {@link SampleFilter} correspondant.
+     */
+    static SampleFilter of(double[] weights) {
+        FirKernel kernel = FirKernel.of(weights, FirKernel.DEFAULT_TOLERANCE);
+        return kernel.getTaps().length > FFT_THRESHOLD ? new FftConvolver(kernel) : new FirFilter(kernel);
+    }
+}
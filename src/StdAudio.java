@@ -10,15 +10,14 @@
 import javax.sound.sampled.Clip;
 
 import java.io.File;
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.IOException;
 
 import java.net.URL;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 
-import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
@@ -259,8 +258,10 @@ public final class StdAudio {
             // the sound card decides to push out its samples.
             buffer = new byte[SAMPLE_BUFFER_SIZE * BYTES_PER_SAMPLE/3];
         }
-        catch (LineUnavailableException e) {
+        catch (LineUnavailableException | IllegalArgumentException e) {
+            // no sound card (e.g. headless render server): reading and saving files still work
             System.out.println(e.getMessage());
+            return;
         }
 
         // no sound gets made before this call
@@ -419,6 +420,14 @@ public final class StdAudio {
      * @return the array of samples
      */
     public static double[] read(String filename) {
+        // plain 16-bit PCM WAVE already at 44,100 Hz mono: memory-map the samples, no conversion needed
+        if (filename.toLowerCase().endsWith(".wav")) {
+            WavFile wav = WavFile.open(filename);
+            if (wav != null && wav.getChannels() == MONO && wav.getSampleRate() == SAMPLE_RATE) {
+                return wav.toDoubles();
+            }
+        }
+
         // 4K buffer (must be a multiple of 2 for mono or 4 for stereo)
         int READ_BUFFER_SIZE = 4096;
 
@@ -436,6 +445,28 @@ public final class StdAudio {
 
         // extract the audio data and convert to a double[] with each sample between -1 and +1
         try {
+            // when the length is known, fill a pre-sized array instead of growing a queue
+            long frameLength = toAudioInputStream.getFrameLength();
+            if (frameLength != AudioSystem.NOT_SPECIFIED && frameLength <= Integer.MAX_VALUE) {
+                double[] samples = new double[(int) frameLength];
+                byte[] bytes = new byte[READ_BUFFER_SIZE];
+                int n = 0;
+                int pending = 0;
+                int count;
+                while (n < samples.length && (count = toAudioInputStream.read(bytes, pending, READ_BUFFER_SIZE - pending)) != -1) {
+                    count += pending;
+                    for (int i = 0; i < count/2 && n < samples.length; i++) {
+                        samples[n++] = ((short) (((bytes[2*i+1] & 0xFF) << 8) | (bytes[2*i] & 0xFF))) / ((double) MAX_16_BIT);
+                    }
+                    // keep an odd trailing byte for the next read
+                    pending = count % 2;
+                    if (pending == 1) bytes[0] = bytes[count - 1];
+                }
+                toAudioInputStream.close();
+                fromAudioInputStream.close();
+                return n == samples.length ? samples : Arrays.copyOf(samples, n);
+            }
+
             QueueOfDoubles queue = new QueueOfDoubles();
             byte[] bytes = new byte[READ_BUFFER_SIZE];
             int count;
@@ -490,45 +521,9 @@ public final class StdAudio {
         }
 
         // assumes 16-bit samples with sample rate = 44,100 Hz
-        // use 16-bit audio, mono, signed PCM, little Endian
-        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, MONO, SIGNED, LITTLE_ENDIAN);
-        byte[] data = new byte[2 * samples.length];
-        for (int i = 0; i < samples.length; i++) {
-            int temp = (short) (samples[i] * MAX_16_BIT);
-            if (samples[i] == 1.0) temp = Short.MAX_VALUE;   // special case since 32768 not a short
-            data[2*i + 0] = (byte) temp;
-            data[2*i + 1] = (byte) (temp >> 8);   // little endian
-        }
-
-
-        // now save the file
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(data);
-             AudioInputStream ais = new AudioInputStream(bais, format, samples.length)) {
-
-            if (filename.endsWith(".wav") || filename.endsWith(".WAV")) {
-                if (!AudioSystem.isFileTypeSupported(AudioFileFormat.Type.WAVE, ais)) {
-                    throw new IllegalArgumentException("saving to WAVE file format is not supported on this system");
-                }
-                AudioSystem.write(ais, AudioFileFormat.Type.WAVE, new File(filename));
-            }
-            else if (filename.endsWith(".au") || filename.endsWith(".AU")) {
-                if (!AudioSystem.isFileTypeSupported(AudioFileFormat.Type.AU, ais)) {
-                    throw new IllegalArgumentException("saving to AU file format is not supported on this system");
-                }
-                AudioSystem.write(ais, AudioFileFormat.Type.AU, new File(filename));
-            }
-            else if (filename.endsWith(".aif") || filename.endsWith(".aiff") || filename.endsWith(".AIF") || filename.endsWith(".AIFF")) {
-                if (!AudioSystem.isFileTypeSupported(AudioFileFormat.Type.AIFF, ais)) {
-                    throw new IllegalArgumentException("saving to AIFF file format is not supported on this system");
-                }
-                AudioSystem.write(ais, AudioFileFormat.Type.AIFF, new File(filename));
-            }
-            else {
-                throw new IllegalArgumentException("file extension for saving must be .wav, .au, or .aif");
-            }
-        }
-        catch (IOException ioe) {
-            throw new IllegalArgumentException("unable to save file '" + filename + "'", ioe);
+        // use 16-bit audio, mono, signed PCM, encoded block by block straight into the file
+        try (AudioSampleWriter writer = new AudioSampleWriter(filename, MONO)) {
+            writer.write(samples, samples.length);
         }
     }
 
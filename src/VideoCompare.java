@@ -0,0 +1,299 @@
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+
+/**
+ * Vérifie le traitement par segments ({@code --segments=n}) de {@link VideoProcessor}.
+ * <p>
+ * Utilisation :
+ * <pre>
+ *   java VideoCompare --segments=n video.mp4
+ *   java VideoCompare reference.mp4 video.mp4 [--min-psnr=db]
+ * </pre>
+ * La première forme est exacte : la vidéo source est décodée en entier, l'empreinte (CRC32) de chaque frame est
+ * gardée, puis chaque segment est ouvert comme par le traitement par segments
+ * ({@link VideoProcessor#openAt(String, long, double)}) et chacune de ses frames doit avoir l'empreinte de la frame
+ * de même indice. Le brouillage ne dépendant que de la clé, des frames source identiques donnent des vidéos
+ * identiques à celles du traitement séquentiel. Une frame décalée est signalée avec son décalage.
+ * <p>
+ * La seconde forme compare deux sorties encodées, par exemple celles de {@code --segments=1} et
+ * {@code --segments=n}. Encodées avec pertes, et chaque segment de son côté, elles ne sont pas identiques octet
+ * pour octet : chaque frame doit avoir un PSNR d'au moins {@code --min-psnr} dB (40 par défaut) avec la frame
+ * de même indice, et ne pas être nettement plus proche d'une frame voisine de la référence, ce qui trahit un
+ * décalage.
+ * <p>
+ * Dans les deux cas, un écart fait échouer la vérification (code de retour 2).
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class VideoCompare {
+
+    public static final double DEFAULT_MIN_PSNR = 40;
+    // Écart en dB au-delà duquel une frame est plus proche d'une voisine que de la sienne
+    public static final double NEIGHBOUR_MARGIN = 0.5;
+    // Décalage maximal recherché pour expliquer une frame de segment différente
+    private static final int MAX_SHIFT = 5;
+
+    static {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage : VideoCompare --segments=n video | VideoCompare reference video [--min-psnr=db]");
+            System.exit(1);
+        }
+
+        boolean matches;
+        if (args[0].startsWith("--segments=")) {
+            List<String> errors = checkSegments(args[1], Integer.parseInt(value(args[0])));
+            errors.forEach(System.out::println);
+            matches = errors.isEmpty();
+        } else {
+            double minPsnr = DEFAULT_MIN_PSNR;
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].startsWith("--min-psnr=")) {
+                    minPsnr = Double.parseDouble(value(args[i]));
+                } else {
+                    System.err.println("Option inconnue : " + args[i]);
+                    System.exit(1);
+                }
+            }
+            Comparison comparison = compare(args[0], args[1]);
+            System.out.println(comparison);
+            matches = comparison.matches(minPsnr);
+        }
+
+        System.out.println(matches ? "Vidéos identiques" : "Vidéos différentes");
+        if (!matches) {
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Vérifie que chaque segment d'une vidéo, ouvert comme par le traitement par segments, décode exactement les
+     * frames du décodage séquentiel.
+     *
+     * @param path     {@link String} : chemin de la vidéo source.
+     * @param segments {@link int} : nombre de segments demandé.
+     * @return {@link List} : écarts trouvés, vide si chaque segment décode les bonnes frames.
+     * @throws IllegalArgumentException si la vidéo ne peut pas être ouverte.
+     */
+    public static List<String> checkSegments(String path, int segments) {
+        VideoCapture videoCapture = open(path);
+        double fps = videoCapture.get(Videoio.CAP_PROP_FPS);
+        long[] bounds = VideoProcessor.segmentBounds((long) videoCapture.get(Videoio.CAP_PROP_FRAME_COUNT), segments);
+
+        Mat frame = new Mat();
+        List<Long> hashes = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        try {
+            while (videoCapture.read(frame)) {
+                hashes.add(hash(frame));
+            }
+            videoCapture.release();
+
+            for (int i = 0; i < bounds.length - 1; i++) {
+                // Le dernier segment va jusqu'à la fin du fichier, comme dans le traitement par segments
+                long end = i == bounds.length - 2 ? hashes.size() : bounds[i + 1];
+                videoCapture = VideoProcessor.openAt(path, bounds[i], fps);
+                String error = null;
+                long index = bounds[i];
+                while (error == null && index < end && videoCapture.read(frame)) {
+                    long actual = hash(frame);
+                    if (index >= hashes.size() || actual != hashes.get((int) index)) {
+                        error = "Segment " + i + " : frame " + index + " différente" + shift(hashes, index, actual);
+                    }
+                    index++;
+                }
+                if (error == null && index < end) {
+                    error = "Segment " + i + " : " + (index - bounds[i]) + " frames lues au lieu de " + (end - bounds[i]);
+                }
+                videoCapture.release();
+
+                if (error != null) {
+                    errors.add(error);
+                } else {
+                    System.out.println("Segment " + i + " : frames " + bounds[i] + " à " + (end - 1) + " identiques");
+                }
+            }
+        } finally {
+            frame.release();
+            videoCapture.release();
+        }
+        return errors;
+    }
+
+    /**
+     * Cherche, parmi les frames voisines du décodage séquentiel, celle qui a l'empreinte de la frame lue.
+     */
+    private static String shift(List<Long> hashes, long index, long actual) {
+        for (int shift = 1; shift <= MAX_SHIFT; shift++) {
+            for (long candidate : new long[]{index - shift, index + shift}) {
+                if (candidate >= 0 && candidate < hashes.size() && hashes.get((int) candidate) == actual) {
+                    return " : c'est la frame " + candidate + " (décalage de " + (candidate - index) + ")";
+                }
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Empreinte des pixels d'une frame.
+     */
+    private static long hash(Mat frame) {
+        byte[] pixels = new byte[(int) (frame.total() * frame.elemSize())];
+        frame.get(0, 0, pixels);
+        CRC32 crc = new CRC32();
+        crc.update(pixels);
+        return crc.getValue();
+    }
+
+    /**
+     * Lit les deux vidéos en même temps et mesure le PSNR de chaque frame avec la frame de même indice de la
+     * référence et avec ses deux voisines.
+     *
+     * @param reference {@link String} : chemin de la vidéo de référence.
+     * @param video     {@link String} : chemin de la vidéo à comparer.
+     * @return {@link Comparison} : nombres de frames, pire PSNR et frames plus proches d'une voisine.
+     * @throws IllegalArgumentException si une des vidéos ne peut pas être ouverte.
+     */
+    public static Comparison compare(String reference, String video) {
+        VideoCapture referenceCapture = open(reference);
+        VideoCapture videoCapture = open(video);
+        // Frames i - 1, i et i + 1 de la référence
+        Mat previous = new Mat();
+        Mat current = new Mat();
+        Mat next = new Mat();
+        Mat frame = new Mat();
+        Comparison comparison = new Comparison();
+
+        try {
+            boolean hasPrevious = false;
+            boolean hasCurrent = referenceCapture.read(current);
+            boolean hasNext = hasCurrent && referenceCapture.read(next);
+            comparison.referenceFrames = (hasCurrent ? 1 : 0) + (hasNext ? 1 : 0);
+
+            while (hasCurrent && videoCapture.read(frame)) {
+                long index = comparison.frames++;
+                double psnr = Core.PSNR(current, frame);
+                if (psnr < comparison.minPsnr) {
+                    comparison.minPsnr = psnr;
+                    comparison.worstFrame = index;
+                }
+                if (hasPrevious && Core.PSNR(previous, frame) > psnr + NEIGHBOUR_MARGIN
+                        || hasNext && Core.PSNR(next, frame) > psnr + NEIGHBOUR_MARGIN) {
+                    comparison.shiftedFrames++;
+                }
+
+                // Décale la fenêtre de la référence d'une frame
+                Mat recycled = previous;
+                previous = current;
+                current = next;
+                next = recycled;
+                hasPrevious = true;
+                hasCurrent = hasNext;
+                hasNext = hasNext && referenceCapture.read(next);
+                if (hasNext) {
+                    comparison.referenceFrames++;
+                }
+            }
+
+            // Compte les frames restantes de la vidéo la plus longue
+            while (referenceCapture.read(next)) {
+                comparison.referenceFrames++;
+            }
+            while (videoCapture.read(frame)) {
+                comparison.frames++;
+            }
+        } finally {
+            previous.release();
+            current.release();
+            next.release();
+            frame.release();
+            referenceCapture.release();
+            videoCapture.release();
+        }
+        return comparison;
+    }
+
+    private static VideoCapture open(String path) {
+        VideoCapture videoCapture = new VideoCapture(path);
+        if (!videoCapture.isOpened()) {
+            throw new IllegalArgumentException("ERR : ouverture du fichier " + path);
+        }
+        return videoCapture;
+    }
+
+    /**
+     * Extrait la valeur d'une option de la forme {@code --nom=valeur}.
+     *
+     * @param arg {@link String} : option complète.
+     * @return {@link String} : valeur de l'option.
+     */
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+
+    /**
+     * Résultat de la comparaison de deux vidéos encodées.
+     */
+    public static final class Comparison {
+        private long referenceFrames = 0;
+        private long frames = 0;
+        private double minPsnr = Double.POSITIVE_INFINITY;
+        private long worstFrame = -1;
+        private long shiftedFrames = 0;
+
+        /**
+         * Indique si les deux vidéos ont le même nombre de frames, si chaque frame est assez proche de la sienne
+         * et si aucune n'est plus proche d'une voisine.
+         *
+         * @param threshold {@link double} : PSNR minimal, en dB.
+         * @return {@link boolean} : {@code true} si les vidéos correspondent.
+         */
+        public boolean matches(double threshold) {
+            return referenceFrames == frames && minPsnr >= threshold && shiftedFrames == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d frames de référence, %d comparées : PSNR minimal %.1f dB (frame %d), "
+                    + "%d frames plus proches d'une voisine", referenceFrames, frames, minPsnr, worstFrame, shiftedFrames);
+        }
+
+        // Getters.
+        public long getReferenceFrames() {
+            return referenceFrames;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * Pire PSNR des paires de frames comparées.
+         *
+         * @return {@link double} : PSNR en dB, infini si aucune frame n'a été comparée.
+         */
+        public double getMinPsnr() {
+            return minPsnr;
+        }
+
+        public long getWorstFrame() {
+            return worstFrame;
+        }
+
+        public long getShiftedFrames() {
+            return shiftedFrames;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.EnumSet;
+
+
+/**
+ * Les sorties qu'un traitement vidéo peut produire. Les étages dont aucune sortie sélectionnée
+ * n'a besoin ne sont pas exécutés.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public enum VideoOutput {
+    ORIGINAL(FrameSet.ORIGINAL),
+    SCRAMBLED(FrameSet.CRYPTED),
+    DESCRAMBLED(FrameSet.DECRYPTED),
+    PREVIEW(-1);
+
+    private final int stream;
+
+
+    VideoOutput(int stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Lit une liste de sorties séparées par des virgules, par exemple {@code "scrambled,preview"}.
+     *
+     * @param list {@link String} : noms des sorties, sans tenir compte de la casse.
+     * @return {@link EnumSet} : sorties sélectionnées.
+     * @throws IllegalArgumentException si un nom ne correspond à aucune sortie.
+     */
+    public static EnumSet<VideoOutput> parse(String list) {
+        EnumSet<VideoOutput> outputs = EnumSet.noneOf(VideoOutput.class);
+
+        for (String name : list.split(",")) {
+            if (!name.isBlank()) {
+                outputs.add(valueOf(name.trim().toUpperCase()));
+            }
+        }
+        return outputs;
+    }
+
+    /**
+     * Version de la frame écrite par cette sortie.
+     *
+     * @return {@link int} : {@link FrameSet#ORIGINAL}, {@link FrameSet#CRYPTED}, {@link FrameSet#DECRYPTED},
+     * ou -1 pour l'aperçu qui n'écrit pas de fichier.
+     */
+    public int getStream() {
+        return stream;
+    }
+}
@@ -0,0 +1,876 @@
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.VideoWriter;
+import org.opencv.videoio.Videoio;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Chaîne de traitement d'une vidéo indépendante de JavaFX : lecture des frames, brouillage, débrouillage,
+ * écriture des trois fichiers vidéo et, en même temps, traitement du son avec FFMPEG, fusionné avec les
+ * vidéos une fois les deux terminés.
+ * Les fichiers sont traités par un {@link FramePipeline} ; la caméra passe par {@link #processFrame(Mat)}.
+ * Seules les {@link VideoOutput} sélectionnées sont produites : par exemple, sans la sortie décryptée,
+ * le second passage de débrouillage et son writer ne sont pas exécutés.
+ * <p>
+ * L'interface graphique s'y branche avec un {@link FrameListener} et active le ralentissement pour
+ * suivre la vidéo à l'écran ; le mode en ligne de commande ({@link VideoScrambleHeadless}) s'en sert
+ * sans aperçu ni pause, à la vitesse du décodage et de l'encodage.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class VideoProcessor {
+
+    public static final int MIN_SEGMENT_FRAMES = 100;
+
+    private static final String AUDIO_CRYPTED = "Audio_crypted.m4a";
+    private static final String AUDIO_DECRYPTED = "Audio_decrypted.m4a";
+
+    /**
+     * Reçoit chaque frame traitée, par exemple pour l'afficher.
+     */
+    public interface FrameListener {
+        void onFrame(Mat frame, Mat frameCrypted, Mat frameDecrypted);
+    }
+
+    private final LineScrambler scrambler;
+    private FrameListener frameListener;
+    private boolean throttled = false;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 8;
+    private int segments = 1;
+    private boolean parallelAudio = false;
+    private double[] audioFilter = AudioScrambleController.gaussian();
+    private EnumSet<VideoOutput> outputs = EnumSet.allOf(VideoOutput.class);
+
+    private String pathVideoCaptured = "Video_captured.mp4";
+    private String pathVideoCrypted = "Video_crypted.mp4";
+    private String pathVideoDecrypted = "Video_decrypted.mp4";
+    // Dossier des fichiers au nom fixe (sons intermédiaires, vidéos avec son), par défaut le dossier courant
+    private Path outputDirectory = Paths.get("");
+
+    // Un writer par version de la frame (FrameSet.ORIGINAL, ...), null si la sortie n'est pas sélectionnée
+    private final VideoWriter[] videoWriters = new VideoWriter[3];
+    private MatPool pool;
+    // Jamais arrêté par le VideoProcessor : celui fourni par setProcessRunner est fermé par son créateur
+    private ProcessRunner processRunner = DEFAULT_RUNNER;
+
+    // Commandes FFMPEG des VideoProcessor sans ProcessRunner fourni : un seul pool de threads démons pour tout
+    // le programme, qui n'a donc pas à être arrêté à la fin de chaque traitement
+    private static final ProcessRunner DEFAULT_RUNNER = new ProcessRunner(3, 1, TimeUnit.HOURS);
+    // Threads du traitement du son, démons pour ne pas retenir la fin du programme ; partagés entre les
+    // VideoProcessor d'un traitement par lots, ils s'arrêtent d'eux-mêmes une fois inutilisés
+    private static final ExecutorService AUDIO_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "audio");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    /**
+     * Constructeur du VideoProcessor.
+     *
+     * @param scrambler {@link LineScrambler} : brouilleur initialisé avec la clé à utiliser.
+     */
+    public VideoProcessor(LineScrambler scrambler) {
+        this.scrambler = scrambler;
+    }
+
+    /**
+     * Traite une vidéo et son audio en même temps, puis fusionne le son avec les vidéos produites.
+     *
+     * @param path {@link String} : chemin de la vidéo à traiter.
+     * @return {@link long} : nombre de frames traitées.
+     */
+    public long process(String path) {
+        Future<?> audio = treatAudioAsync(path);
+        long frames = processVideo(path);
+        mergeAudio(path, audio);
+        return frames;
+    }
+
+    /**
+     * Traite les images d'une vidéo en les encodant et en les décodant.
+     *
+     * @param path {@link String} : chemin de la vidéo à traiter.
+     * @return {@link long} : nombre de frames traitées.
+     */
+    public long processVideo(String path) {
+        // Les segments sont traités dans le désordre : impossible avec l'aperçu ou le ralentissement
+        if (segments > 1 && previewListener() == null && !throttled) {
+            return processVideoSegments(path);
+        }
+
+        VideoCapture videoCapture = new VideoCapture(path);
+
+        if (!videoCapture.isOpened()) {
+            throw new IllegalArgumentException("ERR : ouverture du fichier " + path);
+        }
+
+        double fps = videoCapture.get(Videoio.CAP_PROP_FPS);
+        try {
+            open(fps, videoCapture.get(Videoio.CAP_PROP_FRAME_WIDTH), videoCapture.get(Videoio.CAP_PROP_FRAME_HEIGHT));
+        } catch (RuntimeException e) {
+            videoCapture.release();
+            throw e;
+        }
+
+        // Utilisé pour ajusté la vitesse de la vidéo
+        long frameTime = throttled ? (long) (500 / fps) : 0;
+
+        List<VideoWriter> writers = new ArrayList<>();
+        List<Integer> streams = new ArrayList<>();
+        for (int stream = 0; stream < videoWriters.length; stream++) {
+            if (videoWriters[stream] != null) {
+                writers.add(videoWriters[stream]);
+                streams.add(stream);
+            }
+        }
+
+        FramePipeline pipeline = new FramePipeline(frame -> scrambleFrame(frame, pool), pool, previewListener(),
+                writers.toArray(new VideoWriter[0]), streams.stream().mapToInt(Integer::intValue).toArray(),
+                workers, queueCapacity, frameTime);
+
+        try {
+            return pipeline.run(videoCapture);
+        } finally {
+            close();
+            videoCapture.release();
+        }
+    }
+
+    /**
+     * Ouvre les VideoWriters des sorties sélectionnées parmi la vidéo capturée, cryptée et décryptée.
+     *
+     * @param fps    {@link double} : nombre d'images par seconde de la vidéo.
+     * @param width  {@link double} : largeur de la vidéo.
+     * @param height {@link double} : hauteur de la vidéo.
+     */
+    public void open(double fps, double width, double height) {
+        String[] paths = {pathVideoCaptured, pathVideoCrypted, pathVideoDecrypted};
+
+        try {
+            for (VideoOutput output : outputs) {
+                int stream = output.getStream();
+                if (stream < 0) {
+                    continue;
+                }
+
+                videoWriters[stream] = openWriter(paths[stream], fps, width, height);
+            }
+        } catch (RuntimeException e) {
+            // Libère les writers déjà ouverts
+            close();
+            throw e;
+        }
+        pool = createPool(width, height, workers);
+    }
+
+    private static VideoWriter openWriter(String path, double fps, double width, double height) {
+        VideoWriter writer = new VideoWriter(path, VideoWriter.fourcc('X', '2', '6', '4'),
+                fps, new Size(width, height), true);
+
+        if (!writer.isOpened()) {
+            writer.release();
+            throw new IllegalStateException("ERR : ouverture de fichier " + path);
+        }
+        return writer;
+    }
+
+    private MatPool createPool(double width, double height, int workers) {
+        // Assez de frames pour toutes celles en cours dans le pipeline, sans en allouer de nouvelles
+        int capacity = 3 * (2 * queueCapacity + workers + 2);
+        return new MatPool((int) height, (int) width, CvType.CV_8UC3, capacity, 3);
+    }
+
+    /**
+     * Traite une vidéo par segments indépendants, en parallèle.
+     * <p>
+     * Les frames sont réparties en {@link #getSegments()} plages consécutives. Chaque plage a son propre
+     * {@link VideoCapture}, placé sur sa première frame par {@link #openAt(String, long, double)}, son propre
+     * {@link FramePipeline} et ses propres fichiers partiels ; les parties sont ensuite mises bout à bout par
+     * FFMPEG sans réencodage. Le brouillage ne dépend que de la clé : chaque frame est brouillée comme dans le
+     * traitement séquentiel, ce que {@link VideoCompare} permet de vérifier. Une plage qui ne rend pas
+     * exactement le nombre de frames attendu fait échouer le traitement plutôt que de décaler les frames.
+     *
+     * @param path {@link String} : chemin de la vidéo à traiter.
+     * @return {@link long} : nombre de frames traitées.
+     */
+    private long processVideoSegments(String path) {
+        VideoCapture probe = new VideoCapture(path);
+        if (!probe.isOpened()) {
+            throw new IllegalArgumentException("ERR : ouverture du fichier " + path);
+        }
+        double fps = probe.get(Videoio.CAP_PROP_FPS);
+        double width = probe.get(Videoio.CAP_PROP_FRAME_WIDTH);
+        double height = probe.get(Videoio.CAP_PROP_FRAME_HEIGHT);
+        long total = (long) probe.get(Videoio.CAP_PROP_FRAME_COUNT);
+        probe.release();
+
+        long[] bounds = segmentBounds(total, segments);
+        int count = bounds.length - 1;
+        String[] paths = {pathVideoCaptured, pathVideoCrypted, pathVideoDecrypted};
+        List<Integer> streams = new ArrayList<>();
+        for (VideoOutput output : outputs) {
+            if (output.getStream() >= 0) {
+                streams.add(output.getStream());
+            }
+        }
+
+        long[] starts = new long[count];
+        long[] lengths = new long[count];
+        for (int i = 0; i < count; i++) {
+            starts[i] = bounds[i];
+            // Le dernier segment va jusqu'à la fin du fichier, même si le nombre de frames annoncé est faux
+            lengths[i] = i == count - 1 ? Long.MAX_VALUE : bounds[i + 1] - bounds[i];
+        }
+
+        // Fichiers partiels et listes de segments, supprimés même si un segment échoue
+        List<Path> temporary = new ArrayList<>();
+        if (count > 1) {
+            for (int stream : streams) {
+                for (int i = 0; i < count; i++) {
+                    temporary.add(Paths.get(partPath(paths[stream], i)).toAbsolutePath());
+                }
+                temporary.add(Paths.get(paths[stream] + ".parts.txt"));
+            }
+        }
+
+        int segmentWorkers = Math.max(1, workers / count);
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        CompletionService<Long> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Long>> futures = new ArrayList<>();
+        long frames = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                int id = i;
+                String[] parts = new String[paths.length];
+                for (int stream : streams) {
+                    parts[stream] = count > 1 ? partPath(paths[stream], id) : paths[stream];
+                }
+                futures.add(completion.submit(() -> processSegment(path, starts[id], lengths[id], parts, streams,
+                        fps, width, height, segmentWorkers)));
+            }
+
+            // Les segments sont attendus dans l'ordre où ils finissent : le premier échec arrête les autres
+            for (int i = 0; i < count; i++) {
+                Future<Long> done = completion.take();
+                int id = futures.indexOf(done);
+                long read = done.get();
+                if (id < count - 1 && read != lengths[id]) {
+                    throw new IllegalStateException("ERR : segment " + id + " de " + path + " : " + read
+                            + " frames lues au lieu de " + lengths[id]);
+                }
+                frames += read;
+            }
+
+            if (count > 1) {
+                concatenateParts(paths, streams, count);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("ERR : traitement de la vidéo", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ERR : traitement de la vidéo interrompu", e);
+        } finally {
+            executor.shutdownNow();
+            // Les segments interrompus libèrent leurs writers avant que leurs fichiers soient supprimés
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Path file : temporary) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("ERR suppression du fichier " + file);
+                }
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Découpe une vidéo en segments : au plus {@code segments} plages consécutives d'au moins
+     * {@link #MIN_SEGMENT_FRAMES} frames.
+     *
+     * @param total    {@link long} : nombre de frames annoncé par la vidéo.
+     * @param segments {@link int} : nombre de segments demandé.
+     * @return {@link long[]} : première frame de chaque segment, suivie de {@code total}.
+     */
+    static long[] segmentBounds(long total, int segments) {
+        int count = (int) Math.max(1, Math.min(segments, total / MIN_SEGMENT_FRAMES));
+        long[] bounds = new long[count + 1];
+        for (int i = 0; i <= count; i++) {
+            bounds[i] = total * i / count;
+        }
+        return bounds;
+    }
+
+    /**
+     * Traite une plage de frames dans ses propres fichiers de sortie.
+     *
+     * @return {@link long} : nombre de frames lues.
+     */
+    private long processSegment(String path, long start, long length, String[] parts, List<Integer> streams,
+                                double fps, double width, double height, int segmentWorkers) {
+        VideoCapture videoCapture = openAt(path, start, fps);
+
+        MatPool segmentPool = createPool(width, height, segmentWorkers);
+        VideoWriter[] writers = new VideoWriter[streams.size()];
+        try {
+            for (int i = 0; i < writers.length; i++) {
+                writers[i] = openWriter(parts[streams.get(i)], fps, width, height);
+            }
+            FramePipeline pipeline = new FramePipeline(frame -> scrambleFrame(frame, segmentPool), segmentPool,
+                    null, writers, streams.stream().mapToInt(Integer::intValue).toArray(), segmentWorkers,
+                    queueCapacity, 0);
+            return pipeline.run(videoCapture, length);
+        } finally {
+            for (VideoWriter writer : writers) {
+                if (writer != null) {
+                    writer.release();
+                }
+            }
+            segmentPool.clear();
+            videoCapture.release();
+        }
+    }
+
+    /**
+     * Ouvre une vidéo placée sur une frame : la prochaine lue par {@link VideoCapture#read(Mat)} est {@code start}.
+     * <p>
+     * {@link Videoio#CAP_PROP_POS_FRAMES} repart de l'image clé précédente et peut tomber à côté (horodatages
+     * irréguliers, fréquence d'images variable), même quand la position relue est la bonne. La capture est donc
+     * placée sur la frame {@code start - 1}, qui est décodée et dont l'horodatage
+     * ({@link Videoio#CAP_PROP_POS_MSEC}), compté depuis celui de la première frame (beaucoup de fichiers ne
+     * commencent pas à zéro), doit être celui attendu à une demi-frame près. Sinon, la vidéo est rouverte et ses
+     * {@code start} premières frames sont sautées une à une, ce qui est plus lent mais exact.
+     *
+     * @param path  {@link String} : chemin de la vidéo.
+     * @param start {@link long} : indice de la première frame à lire.
+     * @param fps   {@link double} : nombre d'images par seconde de la vidéo.
+     * @return {@link VideoCapture} : capture placée sur la frame {@code start}.
+     */
+    static VideoCapture openAt(String path, long start, double fps) {
+        VideoCapture videoCapture = new VideoCapture(path);
+        if (!videoCapture.isOpened()) {
+            throw new IllegalArgumentException("ERR : ouverture du fichier " + path);
+        }
+        if (start == 0) {
+            return videoCapture;
+        }
+
+        // Horodatage de la première frame, origine des horodatages attendus
+        if (!videoCapture.grab()) {
+            videoCapture.release();
+            throw new IllegalStateException("ERR : positionnement sur la frame " + start + " de " + path);
+        }
+        double origin = videoCapture.get(Videoio.CAP_PROP_POS_MSEC);
+
+        long previous = start - 1;
+        if (videoCapture.set(Videoio.CAP_PROP_POS_FRAMES, previous) && videoCapture.grab()
+                && Math.abs(videoCapture.get(Videoio.CAP_PROP_POS_MSEC) - origin - previous * 1000 / fps) < 500 / fps) {
+            return videoCapture;
+        }
+
+        System.out.println("Positionnement imprécis sur la frame " + start + " de " + path
+                + " : frames sautées une à une");
+        videoCapture.release();
+        videoCapture = new VideoCapture(path);
+        for (long frame = 0; frame < start; frame++) {
+            if (!videoCapture.grab()) {
+                videoCapture.release();
+                throw new IllegalStateException("ERR : positionnement sur la frame " + start + " de " + path);
+            }
+        }
+        return videoCapture;
+    }
+
+    /**
+     * Met bout à bout, avec FFMPEG et sans réencodage, les fichiers partiels de chaque sortie.
+     */
+    private void concatenateParts(String[] paths, List<Integer> streams, int count) {
+        List<Future<ProcessRunner.Result>> concats = new ArrayList<>();
+
+        try {
+            for (int stream : streams) {
+                Path list = Paths.get(paths[stream] + ".parts.txt");
+                StringBuilder content = new StringBuilder();
+                for (int i = 0; i < count; i++) {
+                    Path part = Paths.get(partPath(paths[stream], i)).toAbsolutePath();
+                    content.append("file '").append(part.toString().replace("'", "'\\''")).append("'\n");
+                }
+                Files.write(list, content.toString().getBytes(StandardCharsets.UTF_8));
+
+                concats.add(processRunner.submit("ffmpeg", "-v", "error", "-y", "-f", "concat", "-safe", "0",
+                        "-i", list.toString(), "-c", "copy", paths[stream]));
+            }
+            ProcessRunner.awaitAll(concats);
+        } catch (IOException e) {
+            throw new IllegalStateException("ERR : liste des segments", e);
+        }
+    }
+
+    /**
+     * Chemin du fichier partiel d'un segment : {@code video.mp4} donne {@code video.part2.mp4}.
+     */
+    private static String partPath(String path, int segment) {
+        int dot = path.lastIndexOf('.');
+        if (dot <= Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar))) {
+            return path + ".part" + segment;
+        }
+        return path.substring(0, dot) + ".part" + segment + path.substring(dot);
+    }
+
+    /**
+     * Prend une frame libre, à la taille de la vidéo ouverte, pour y lire l'image suivante.
+     *
+     * @return {@link Mat} : frame à remplir puis à passer à {@link #processFrame(Mat)}.
+     */
+    public Mat acquireFrame() {
+        return pool.acquire();
+    }
+
+    /**
+     * Brouille et débrouille une frame, la transmet au {@link FrameListener} puis l'écrit dans les fichiers.
+     * Les frames sont ensuite rendues à la réserve : {@code frame} ne doit plus être utilisée.
+     *
+     * @param frame {@link Mat} : frame originale.
+     */
+    public void processFrame(Mat frame) {
+        FrameSet frameSet = scrambleFrame(frame, pool);
+        FrameListener listener = previewListener();
+
+        if (listener != null) {
+            listener.onFrame(frame, frameSet.get(FrameSet.CRYPTED), frameSet.get(FrameSet.DECRYPTED));
+        }
+
+        for (int stream = 0; stream < videoWriters.length; stream++) {
+            if (videoWriters[stream] != null) {
+                videoWriters[stream].write(frameSet.get(stream));
+            }
+        }
+        frameSet.release();
+    }
+
+    /**
+     * Brouille puis débrouille une frame, en sautant les passages dont aucune sortie n'a besoin.
+     *
+     * @param frame {@link Mat} : frame originale.
+     * @param pool  {@link MatPool} : réserve où prendre les frames brouillées.
+     * @return {@link FrameSet} : les versions de la frame, {@code null} pour celles qui n'ont pas été calculées.
+     */
+    private FrameSet scrambleFrame(Mat frame, MatPool pool) {
+        Mat frameCrypted = null;
+        Mat frameDecrypted = null;
+
+        if (outputs.contains(VideoOutput.SCRAMBLED) || outputs.contains(VideoOutput.DESCRAMBLED)
+                || outputs.contains(VideoOutput.PREVIEW)) {
+            frameCrypted = pool.acquire();
+            scrambler.scramble(frame, frameCrypted, true);
+        }
+
+        if (outputs.contains(VideoOutput.DESCRAMBLED)) {
+            frameDecrypted = pool.acquire();
+            scrambler.scramble(frameCrypted, frameDecrypted, false);
+        }
+
+        return new FrameSet(frame, frameCrypted, frameDecrypted, pool);
+    }
+
+    /**
+     * Renvoie le {@link FrameListener} à appeler, ou {@code null} si l'aperçu n'est pas sélectionné.
+     */
+    private FrameListener previewListener() {
+        return outputs.contains(VideoOutput.PREVIEW) ? frameListener : null;
+    }
+
+    /**
+     * Libère les ressources des VideoWriters et de la réserve de frames.
+     */
+    public void close() {
+        for (int stream = 0; stream < videoWriters.length; stream++) {
+            if (videoWriters[stream] != null) {
+                videoWriters[stream].release();
+                videoWriters[stream] = null;
+            }
+        }
+        if (pool != null) {
+            pool.clear();
+            pool = null;
+        }
+    }
+
+    /**
+     * Traite le son d'une vidéo en l'encodant et en le décodant, puis le fusionne avec les vidéos produites.
+     *
+     * @param path {@link String} : chemin de la vidéo à traiter.
+     */
+    public void processAudio(String path) {
+        if (treatAudio(path)) {
+            mergeAudio(path);
+        }
+    }
+
+    /**
+     * Lance le traitement du son sur son propre thread, pour qu'il se déroule pendant celui des images.
+     * Le résultat est fusionné avec les vidéos par {@link #mergeAudio(String, Future)}.
+     *
+     * @param path {@link String} : chemin de la vidéo à traiter.
+     * @return {@link Future} : fin du traitement du son, {@code false} si la vidéo n'a pas de son.
+     */
+    public Future<Boolean> treatAudioAsync(String path) {
+        return AUDIO_EXECUTOR.submit(() -> treatAudio(path));
+    }
+
+    /**
+     * Brouille et débrouille le son d'une vidéo, sans avoir besoin des vidéos produites.
+     * <p>
+     * Le son n'est jamais écrit en PCM sur le disque : un processus FFMPEG le décode vers sa sortie standard, il
+     * est brouillé puis débrouillé bloc par bloc ({@link AudioScrambler}), et chaque version est écrite en PCM
+     * brut dans l'entrée standard d'un FFMPEG qui l'encode en AAC ({@code Audio_crypted.m4a},
+     * {@code Audio_decrypted.m4a}). Une vidéo sans piste audio n'est pas une erreur : il n'y a simplement rien à
+     * traiter ni à fusionner.
+     *
+     * @param path {@link String} : chemin de la vidéo à traiter.
+     * @return {@link boolean} : {@code false} si la vidéo n'a pas de son.
+     */
+    public boolean treatAudio(String path) {
+        if (!hasAudio(path)) {
+            System.out.println("Pas de son dans " + path + " : vidéos produites sans son");
+            return false;
+        }
+
+        boolean scrambled = outputs.contains(VideoOutput.SCRAMBLED);
+        boolean descrambled = outputs.contains(VideoOutput.DESCRAMBLED);
+        if (!scrambled && !descrambled) {
+            return true;
+        }
+
+        ProcessRunner.Running decoder = processRunner.start("ffmpeg", "-v", "error", "-nostdin", "-i", path, "-vn",
+                "-ar", String.valueOf(StdAudio.SAMPLE_RATE), "-c:a", "pcm_s16le", "-f", "wav", "-");
+        ProcessRunner.Running scrambledEncoder = null;
+        ProcessRunner.Running descrambledEncoder = null;
+
+        try (AudioSampleReader reader = new AudioSampleReader(
+                new BufferedInputStream(decoder.getProcess().getInputStream()))) {
+            int channels = reader.getChannels();
+            if (scrambled) {
+                scrambledEncoder = startEncoder(channels, output(AUDIO_CRYPTED));
+            }
+            if (descrambled) {
+                descrambledEncoder = startEncoder(channels, output(AUDIO_DECRYPTED));
+            }
+
+            // Fermer les writers ferme l'entrée des FFMPEG, qui terminent alors leur fichier
+            try (AudioSampleWriter scrambledWriter = scrambledEncoder != null
+                    ? new AudioSampleWriter(scrambledEncoder.getProcess().getOutputStream(), channels) : null;
+                 AudioSampleWriter descrambledWriter = descrambledEncoder != null
+                         ? new AudioSampleWriter(descrambledEncoder.getProcess().getOutputStream(), channels) : null) {
+                AudioScrambler.treatment(reader, scrambledWriter, descrambledWriter, audioFilter,
+                        StdAudio.SAMPLE_RATE, audioPool());
+            }
+        } catch (RuntimeException e) {
+            // Un flux illisible vient du décodeur, une écriture refusée d'un encodeur arrêté : la sortie
+            // d'erreur de celui qui a échoué explique l'échec
+            cancel(decoder, scrambledEncoder, descrambledEncoder);
+            throw new IllegalStateException("ERR : traitement audio de " + path
+                    + errorOutput(decoder, scrambledEncoder, descrambledEncoder), e);
+        }
+
+        decoder.await();
+        if (scrambledEncoder != null) {
+            scrambledEncoder.await();
+        }
+        if (descrambledEncoder != null) {
+            descrambledEncoder.await();
+        }
+        return true;
+    }
+
+    /**
+     * Indique, avec FFPROBE, si une vidéo a au moins une piste audio.
+     *
+     * @param path {@link String} : chemin de la vidéo.
+     * @return {@link boolean} : {@code true} si la vidéo a du son.
+     */
+    private boolean hasAudio(String path) {
+        ProcessRunner.Result probe = processRunner.run("ffprobe", "-v", "error", "-select_streams", "a",
+                "-show_entries", "stream=index", "-of", "csv=p=0", path);
+        return !probe.getOutput().isBlank();
+    }
+
+    /**
+     * Attend la fin du traitement du son lancé par {@link #treatAudioAsync(String)}, puis le fusionne avec les
+     * vidéos produites.
+     *
+     * @param path  {@link String} : chemin de la vidéo traitée.
+     * @param audio {@link Future} : traitement du son en cours ; rien n'est fusionné s'il renvoie {@code false}.
+     * @throws IllegalStateException si le traitement du son a échoué ou si l'attente est interrompue.
+     */
+    public void mergeAudio(String path, Future<?> audio) {
+        try {
+            if (Boolean.FALSE.equals(audio.get())) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ERR : attente du traitement audio interrompue", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("ERR : traitement audio de " + path, e.getCause());
+        }
+        mergeAudio(path);
+    }
+
+    /**
+     * Fusionne le son avec les vidéos produites : le son d'origine est repris de la vidéo source, les sons
+     * brouillé et débrouillé, déjà encodés, sont copiés sans réencodage.
+     *
+     * @param path {@link String} : chemin de la vidéo traitée.
+     */
+    private void mergeAudio(String path) {
+        // Les fusions ne dépendent pas les unes des autres : elles sont lancées en même temps
+        List<Future<ProcessRunner.Result>> merges = new ArrayList<>();
+        if (outputs.contains(VideoOutput.ORIGINAL)) {
+            deleteFile(output("video_captured_with_song.mp4"));
+            merges.add(mergeVideoWithAudio(pathVideoCaptured, path, "aac", output("video_captured_with_song.mp4")));
+        }
+        if (outputs.contains(VideoOutput.SCRAMBLED)) {
+            deleteFile(output("video_cryted_with_song.mp4"));
+            merges.add(mergeVideoWithAudio(pathVideoCrypted, output(AUDIO_CRYPTED), "copy",
+                    output("video_cryted_with_song.mp4")));
+        }
+        if (outputs.contains(VideoOutput.DESCRAMBLED)) {
+            deleteFile(output("video_decryted_with_song.mp4"));
+            merges.add(mergeVideoWithAudio(pathVideoDecrypted, output(AUDIO_DECRYPTED), "copy",
+                    output("video_decryted_with_song.mp4")));
+        }
+        ProcessRunner.awaitAll(merges);
+    }
+
+    /**
+     * Chemin d'un fichier au nom fixe (son intermédiaire, vidéo avec son) dans le dossier de sortie.
+     */
+    private String output(String name) {
+        return outputDirectory.resolve(name).toString();
+    }
+
+    /**
+     * Renvoie le pool du traitement audio parallèle, ou {@code null} si le son est traité séquentiellement.
+     */
+    private ForkJoinPool audioPool() {
+        return parallelAudio ? ForkJoinPool.commonPool() : null;
+    }
+
+    /**
+     * Lance un FFMPEG qui encode en AAC le son PCM brut (16 bits, little endian) reçu sur son entrée standard.
+     *
+     * @param channels   {@link int} : nombre de canaux entrelacés du son.
+     * @param outputPath {@link String} : fichier audio de destination.
+     * @return {@link ProcessRunner.Running} : processus dont l'entrée attend les échantillons.
+     */
+    private ProcessRunner.Running startEncoder(int channels, String outputPath) {
+        // -y : l'entrée standard porte le son, FFMPEG ne doit pas y attendre de réponse
+        return processRunner.start("ffmpeg", "-v", "error", "-y",
+                "-f", "s16le", "-ar", String.valueOf(StdAudio.SAMPLE_RATE), "-ac", String.valueOf(channels), "-i", "-",
+                "-c:a", "aac", "-strict", "experimental", outputPath);
+    }
+
+    /**
+     * Tue les processus lancés.
+     *
+     * @param processes {@link ProcessRunner.Running} : processus à tuer, {@code null} pour ceux qui n'ont pas été lancés.
+     */
+    private static void cancel(ProcessRunner.Running... processes) {
+        for (ProcessRunner.Running process : processes) {
+            if (process != null) {
+                process.cancel();
+            }
+        }
+    }
+
+    /**
+     * Sorties d'erreur des processus lancés, chacune précédée de sa commande.
+     *
+     * @param processes {@link ProcessRunner.Running} : processus lancés, {@code null} pour ceux qui ne l'ont pas été.
+     * @return {@link String} : sorties non vides, chacune sur des lignes à part.
+     */
+    private static String errorOutput(ProcessRunner.Running... processes) {
+        StringBuilder output = new StringBuilder();
+        for (ProcessRunner.Running process : processes) {
+            if (process != null && !process.getOutput().isBlank()) {
+                output.append(System.lineSeparator()).append(String.join(" ", process.getCommand())).append(" :")
+                        .append(System.lineSeparator()).append(process.getOutput().strip());
+            }
+        }
+        return output.toString();
+    }
+
+    /**
+     * Réunir le son et la vidéo avec FFMPEG.
+     *
+     * @param videoPath {@link String} : vidéo à fusionner.
+     * @param audioPath {@link String} : fichier dont le son est fusionné (audio ou vidéo).
+     * @param audioCodec {@link String} : codec du son fusionné, {@code copy} pour le garder tel quel.
+     * @param outputVideoPath {@link String} : vidéo de destination.
+     * @return {@link Future} : fusion soumise au {@link ProcessRunner}.
+     */
+    private Future<ProcessRunner.Result> mergeVideoWithAudio(String videoPath, String audioPath, String audioCodec,
+                                                             String outputVideoPath) {
+        return processRunner.submit("ffmpeg", "-v", "error", "-i", videoPath, "-i", audioPath,
+                "-map", "0:v:0", "-map", "1:a:0", "-c:v", "copy", "-c:a", audioCodec, "-strict", "experimental",
+                outputVideoPath);
+    }
+
+    /**
+     * Supprime un fichier vidéo spécifié par son chemin.
+     *
+     * @param path {@link String} : chemin du fichier vidéo à supprimer.
+     */
+    public static void deleteFile(String path) {
+        File videoFile = new File(path);
+
+        if (!videoFile.exists()) {
+            System.out.println("Fichier introuvable");
+        } else if (!videoFile.delete()) {
+            System.err.println("ERR suppression du fichier " + path);
+        } else {
+            System.out.println("Vidéo supprimée avec succès");
+        }
+    }
+
+    /**
+     * Écrire les clés de chiffrement dans un fichier texte.
+     *
+     * @param pathFile {@link String} : fichier de destination.
+     * @param key      {@link String} : clées utilisées.
+     */
+    public static void writeKey(String pathFile, String key) {
+        try (FileOutputStream fos = new FileOutputStream(pathFile)) {
+            fos.write(key.getBytes());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Getters.
+    public LineScrambler getScrambler() {
+        return scrambler;
+    }
+
+    public ProcessRunner getProcessRunner() {
+        return processRunner;
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public boolean isParallelAudio() {
+        return parallelAudio;
+    }
+
+    public EnumSet<VideoOutput> getOutputs() {
+        return EnumSet.copyOf(outputs);
+    }
+
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public String getPathVideoCaptured() {
+        return pathVideoCaptured;
+    }
+
+    public String getPathVideoCrypted() {
+        return pathVideoCrypted;
+    }
+
+    public String getPathVideoDecrypted() {
+        return pathVideoDecrypted;
+    }
+
+
+    // Setters.
+    public void setFrameListener(FrameListener frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    public void setOutputs(EnumSet<VideoOutput> outputs) {
+        this.outputs = EnumSet.copyOf(outputs);
+    }
+
+    public void setThrottled(boolean throttled) {
+        this.throttled = throttled;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setProcessRunner(ProcessRunner processRunner) {
+        this.processRunner = processRunner;
+    }
+
+    public void setSegments(int segments) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("segments must be positive");
+        }
+        this.segments = segments;
+    }
+
+    public void setParallelAudio(boolean parallelAudio) {
+        this.parallelAudio = parallelAudio;
+    }
+
+    public void setAudioFilter(double[] audioFilter) {
+        this.audioFilter = audioFilter.clone();
+    }
+
+    public void setOutputDirectory(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public void setPathVideoCaptured(String pathVideoCaptured) {
+        this.pathVideoCaptured = pathVideoCaptured;
+    }
+
+    public void setPathVideoCrypted(String pathVideoCrypted) {
+        this.pathVideoCrypted = pathVideoCrypted;
+    }
+
+    public void setPathVideoDecrypted(String pathVideoDecrypted) {
+        this.pathVideoDecrypted = pathVideoDecrypted;
+    }
+}
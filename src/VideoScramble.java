@@ -1,10 +1,18 @@
 import javafx.application.Application;
 import javafx.stage.Stage;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
 public class VideoScramble extends Application {
 
     public static int offset = -1;
     public static int step = -1;
+    public static boolean parallel = false;
+    public static double previewFps = 30;
+    public static boolean previewFullSize = false;
+    public static EnumSet<VideoOutput> outputs = EnumSet.allOf(VideoOutput.class);
 
     @Override
     public void start(Stage primaryStage) {
@@ -13,10 +21,26 @@ public class VideoScramble extends Application {
     }
 
     public static void main(String[] args) {
-        if (args.length >= 2) {
+        // La clé est lue dans les deux premiers arguments qui ne sont pas des options
+        List<String> key = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--parallel")) {
+                parallel = true;
+            } else if (arg.startsWith("--preview-fps=")) {
+                previewFps = Double.parseDouble(arg.substring("--preview-fps=".length()));
+            } else if (arg.equals("--preview-full-size")) {
+                previewFullSize = true;
+            } else if (arg.startsWith("--outputs=")) {
+                outputs = VideoOutput.parse(arg.substring("--outputs=".length()));
+            } else if (!arg.startsWith("--")) {
+                key.add(arg);
+            }
+        }
+
+        if (key.size() >= 2) {
             try {
-                offset = Integer.parseInt(args[0]);
-                step = Integer.parseInt(args[1]);
+                offset = Integer.parseInt(key.get(0));
+                step = Integer.parseInt(key.get(1));
             } catch (NumberFormatException e) {
                 System.err.println("Paramètre de ligne de commande incorrect");
             }
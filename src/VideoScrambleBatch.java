@@ -0,0 +1,101 @@
+import org.opencv.core.Core;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.List;
+
+
+/**
+ * Point d'entrée du traitement par lots ({@link BatchProcessor}), sans fenêtre JavaFX.
+ * <p>
+ * Utilisation :
+ * <pre>
+ *   java VideoScrambleBatch (dossier|manifeste) sortie [--jobs=n] [--workers=n] [--segments=n]
+ *        [--key=offset,step] [--outputs=original,scrambled,descrambled] [--parallel]
+ *        [--audio-filter=gaussian|sinc:n:fc] [--no-audio]
+ * </pre>
+ * Chaque vidéo est écrite dans {@code sortie/<nom de la vidéo>-<empreinte du chemin>/} avec son fichier de clé ;
+ * relancer la même commande après une interruption reprend le lot là où il s'était arrêté.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class VideoScrambleBatch {
+
+    static {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage : VideoScrambleBatch (dossier|manifeste) sortie [--jobs=n] [--workers=n]"
+                    + " [--segments=n] [--key=offset,step] [--outputs=original,scrambled,descrambled] [--parallel]"
+                    + " [--audio-filter=gaussian|sinc:n:fc] [--no-audio]");
+            System.exit(1);
+        }
+
+        int jobs = 2;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--jobs=")) {
+                jobs = Integer.parseInt(value(args[i]));
+            }
+        }
+
+        BatchProcessor batch = new BatchProcessor(Paths.get(args[1]), jobs);
+
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+
+            if (arg.startsWith("--jobs=")) {
+                continue;
+            } else if (arg.startsWith("--workers=")) {
+                batch.setWorkers(Integer.parseInt(value(arg)));
+            } else if (arg.startsWith("--segments=")) {
+                batch.setSegments(Integer.parseInt(value(arg)));
+            } else if (arg.startsWith("--key=")) {
+                String[] key = value(arg).split(",");
+                try {
+                    batch.setKey(Integer.parseInt(key[0].trim()), Integer.parseInt(key[1].trim()));
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    System.err.println("Paramètre de ligne de commande incorrect : " + arg);
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--outputs=")) {
+                EnumSet<VideoOutput> outputs = VideoOutput.parse(value(arg));
+                outputs.remove(VideoOutput.PREVIEW);
+                batch.setOutputs(outputs);
+            } else if (arg.equals("--parallel")) {
+                batch.setParallel(true);
+            } else if (arg.startsWith("--audio-filter=")) {
+                batch.setAudioFilter(AudioScrambleController.lowPassFilter(value(arg)));
+            } else if (arg.equals("--no-audio")) {
+                batch.setWithAudio(false);
+            } else {
+                System.err.println("Option inconnue : " + arg);
+                System.exit(1);
+            }
+        }
+
+        List<Path> inputs = BatchProcessor.listInputs(Paths.get(args[0]));
+        BatchProcessor.Report report;
+        try (batch) {
+            report = batch.run(inputs);
+        }
+        System.out.println(report);
+
+        if (report.getFailed() > 0) {
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Extrait la valeur d'une option de la forme {@code --nom=valeur}.
+     *
+     * @param arg {@link String} : option complète.
+     * @return {@link String} : valeur de l'option.
+     */
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
@@ -0,0 +1,112 @@
+import org.opencv.core.Core;
+
+import java.util.EnumSet;
+import java.util.concurrent.Future;
+
+
+/**
+ * Point d'entrée en ligne de commande de VideoScramble, sans fenêtre JavaFX ni aperçu.
+ * <p>
+ * Utilisation :
+ * <pre>
+ *   java VideoScrambleHeadless video offset step [--original=fichier] [--crypted=fichier]
+ *        [--decrypted=fichier] [--key=fichier] [--outputs=original,scrambled,descrambled] [--workers=n]
+ *        [--segments=n] [--parallel] [--audio-filter=gaussian|sinc:n:fc] [--no-audio]
+ * </pre>
+ * La vidéo est traitée aussi vite que le permettent le décodage et l'encodage, puis le nombre
+ * d'images par seconde obtenu est affiché.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public class VideoScrambleHeadless {
+
+    static {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage : VideoScrambleHeadless video offset step [--original=fichier] [--crypted=fichier]"
+                    + " [--decrypted=fichier] [--key=fichier] [--outputs=original,scrambled,descrambled] [--workers=n]"
+                    + " [--segments=n] [--parallel] [--audio-filter=gaussian|sinc:n:fc] [--no-audio]");
+            System.exit(1);
+        }
+
+        int offset = 0, step = 0;
+        try {
+            offset = Integer.parseInt(args[1]);
+            step = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            System.err.println("Paramètre de ligne de commande incorrect");
+            System.exit(1);
+        }
+
+        LineScrambler scrambler = new LineScrambler(offset, step);
+        VideoProcessor processor = new VideoProcessor(scrambler);
+        processor.setOutputs(EnumSet.of(VideoOutput.ORIGINAL, VideoOutput.SCRAMBLED, VideoOutput.DESCRAMBLED));
+        String pathKey = "key_used.txt";
+        boolean withAudio = true;
+
+        for (int i = 3; i < args.length; i++) {
+            String arg = args[i];
+
+            if (arg.startsWith("--original=")) {
+                processor.setPathVideoCaptured(value(arg));
+            } else if (arg.startsWith("--crypted=")) {
+                processor.setPathVideoCrypted(value(arg));
+            } else if (arg.startsWith("--decrypted=")) {
+                processor.setPathVideoDecrypted(value(arg));
+            } else if (arg.startsWith("--key=")) {
+                pathKey = value(arg);
+            } else if (arg.startsWith("--outputs=")) {
+                EnumSet<VideoOutput> outputs = VideoOutput.parse(value(arg));
+                outputs.remove(VideoOutput.PREVIEW);
+                processor.setOutputs(outputs);
+            } else if (arg.startsWith("--workers=")) {
+                processor.setWorkers(Integer.parseInt(value(arg)));
+            } else if (arg.startsWith("--segments=")) {
+                processor.setSegments(Integer.parseInt(value(arg)));
+            } else if (arg.equals("--parallel")) {
+                scrambler.setParallel(true);
+                processor.setParallelAudio(true);
+            } else if (arg.startsWith("--audio-filter=")) {
+                processor.setAudioFilter(AudioScrambleController.lowPassFilter(value(arg)));
+            } else if (arg.equals("--no-audio")) {
+                withAudio = false;
+            } else {
+                System.err.println("Option inconnue : " + arg);
+                System.exit(1);
+            }
+        }
+
+        VideoProcessor.writeKey(pathKey, "Clé utilisée : (" + offset + ", " + step + ")");
+
+        // Le son est traité pendant les images, puis fusionné une fois les vidéos écrites
+        Future<?> audio = withAudio ? processor.treatAudioAsync(args[0]) : null;
+
+        long start = System.nanoTime();
+        long frames = processor.processVideo(args[0]);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        if (audio != null) {
+            processor.mergeAudio(args[0], audio);
+        }
+        // Commandes FFMPEG lancées : son, fusions et, par segments, concaténation des parties
+        for (ProcessRunner.Result result : processor.getProcessRunner().getResults()) {
+            System.out.println(result);
+        }
+
+        System.out.printf("%d frames traitées en %.2f s (%.1f images/s)%n", frames, seconds, frames / seconds);
+    }
+
+    /**
+     * Extrait la valeur d'une option de la forme {@code --nom=valeur}.
+     *
+     * @param arg {@link String} : option complète.
+     * @return {@link String} : valeur de l'option.
+     */
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Fichier WAVE PCM 16 bits little endian projeté en mémoire.
+ * <p>
+ * L'en-tête RIFF est lu directement et le bloc {@code data} est projeté avec {@link FileChannel#map} : les
+ * échantillons sont exposés sans copie sous forme de {@link ShortBuffer} (canaux entrelacés), ou copiés une
+ * seule fois dans un tableau de la bonne taille. Les autres formats (compressés, 8 ou 24 bits, AU, AIFF...)
+ * ne sont pas pris en charge : {@link #open(String)} renvoie alors {@code null} et l'appelant passe par
+ * {@link javax.sound.sampled.AudioSystem}.
+ *
+ * @author Giuliana Godail Fabrizio
+ * @author Mathéo Girard
+ */
+public final class WavFile {
+
+    private static final int MAX_16_BIT = 32768;
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final int channels;
+    private final int sampleRate;
+    private final ShortBuffer samples;
+
+
+    /**
+     * Constructeur du WavFile.
+     *
+     * @param channels   {@link int} : nombre de canaux.
+     * @param sampleRate {@link int} : taux d'échantillonnage.
+     * @param samples    {@link ShortBuffer} : échantillons entrelacés.
+     */
+    private WavFile(int channels, int sampleRate, ShortBuffer samples) {
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.samples = samples;
+    }
+
+    /**
+     * Ouvre un fichier WAVE PCM 16 bits et projette ses échantillons en mémoire.
+     *
+     * @param filename {@link String} : chemin du fichier.
+     * @return le {@link WavFile}, ou {@code null} si le fichier n'est pas un WAVE PCM 16 bits little endian.
+     * @throws IllegalArgumentException si le fichier ne peut pas être lu.
+     */
+    public static WavFile open(String filename) {
+        Path path = Paths.get(filename);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            if (size < 12 || channel.read(header, 0) < 12
+                    || header.getInt(0) != fourCC("RIFF") || header.getInt(8) != fourCC("WAVE")) {
+                return null;
+            }
+
+            int channels = 0;
+            int sampleRate = 0;
+            boolean pcm16 = false;
+            long position = 12;
+            ByteBuffer chunk = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+
+            // Parcourt les blocs jusqu'au bloc data ; les blocs inconnus (LIST, fact...) sont ignorés
+            while (position + 8 <= size) {
+                chunk.clear().limit(8);
+                channel.read(chunk, position);
+                int id = chunk.getInt(0);
+                long length = chunk.getInt(4) & 0xFFFFFFFFL;
+                long body = position + 8;
+
+                if (id == fourCC("fmt ")) {
+                    // Un bloc fmt de moins de 16 octets (ou tronqué) est un en-tête invalide, comme les autres
+                    chunk.clear().limit((int) Math.min(length, chunk.capacity()));
+                    if (length < 16 || channel.read(chunk, body) < 16) {
+                        return null;
+                    }
+                    int format = chunk.getShort(0) & 0xFFFF;
+                    if (format == WAVE_FORMAT_EXTENSIBLE && length >= 26) {
+                        // Le sous-format commence par le code du format dans son GUID
+                        format = chunk.getShort(24) & 0xFFFF;
+                    }
+                    channels = chunk.getShort(2) & 0xFFFF;
+                    sampleRate = chunk.getInt(4);
+                    int bitsPerSample = chunk.getShort(14) & 0xFFFF;
+                    pcm16 = format == WAVE_FORMAT_PCM && bitsPerSample == 16 && channels > 0;
+                } else if (id == fourCC("data")) {
+                    if (!pcm16) {
+                        return null;
+                    }
+                    // Un fichier écrit dans un flux peut annoncer une taille fausse : on s'arrête à la fin du fichier
+                    long available = Math.min(length, size - body);
+                    long frameBytes = 2L * channels;
+                    available -= available % frameBytes;
+                    if (available > Integer.MAX_VALUE) {
+                        return null;
+                    }
+
+                    MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, body, available);
+                    return new WavFile(channels, sampleRate, data.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer());
+                }
+                position = body + length + (length & 1);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not read '" + filename + "'", e);
+        }
+    }
+
+    private static int fourCC(String id) {
+        return id.charAt(0) | (id.charAt(1) << 8) | (id.charAt(2) << 16) | (id.charAt(3) << 24);
+    }
+
+    /**
+     * Copie les échantillons entrelacés dans un tableau, entre -1.0 et +1.0.
+     *
+     * @return {@link double[]} : un échantillon par canal et par frame.
+     */
+    public double[] toDoubles() {
+        double[] values = new double[samples.limit()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = samples.get(i) / ((double) MAX_16_BIT);
+        }
+        return values;
+    }
+
+    /**
+     * Vue sans copie des échantillons entrelacés, positionnée au début.
+     *
+     * @return {@link ShortBuffer} : échantillons, en lecture seule.
+     */
+    public ShortBuffer samples() {
+        return samples.duplicate();
+    }
+
+    /**
+     * Nombre de frames (un échantillon par canal) du fichier.
+     *
+     * @return {@link long} : nombre de frames.
+     */
+    public long getFrameLength() {
+        return samples.limit() / channels;
+    }
+
+    // Getters.
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+}